@@ -5,6 +5,7 @@ plugins {
     id("java")
 //    id("org.jetbrains.kotlin.jvm") version "2.1.0"
     id("org.jetbrains.intellij.platform") version "2.5.0"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "plus.wcj.jetbrains.plugins"
@@ -26,6 +27,13 @@ repositories {
 // Configure IntelliJ Platform Gradle Plugin
 // Read more: https://plugins.jetbrains.com/docs/intellij/tools-intellij-platform-gradle-plugin.html
 dependencies {
+    // recording Graphics2D for the SVG and PDF formats
+    implementation("org.jfree:org.jfree.svg:5.0.6")
+    implementation("com.orsonpdf:orsonpdf:1.9")
+
+    // the platform test framework runs on JUnit 4
+    testImplementation("junit:junit:4.13.2")
+
     intellijPlatform {
         create("2022.3")
 //        androidStudio("2025.1.2.11")
@@ -55,6 +63,40 @@ tasks {
         sourceCompatibility = "17"
         targetCompatibility = "17"
     }
+
+    // Golden images: ./gradlew test -Dscreenshot.golden.update=true records missing or changed ones into src/test/testData/golden,
+    // -Dscreenshot.golden.strict=true fails on missing ones
+    test {
+        maxHeapSize = "2g"
+        systemProperty("java.awt.headless", "true")
+        // goldens are recorded at one device pixel per user space pixel
+        systemProperty("sun.java2d.uiScale", "1")
+        systemProperty("ide.ui.scale", "1")
+        systemProperty("screenshot.golden.update", System.getProperty("screenshot.golden.update", "false"))
+        systemProperty("screenshot.golden.strict", System.getProperty("screenshot.golden.strict", "false"))
+        // Platform stage benchmarks: ./gradlew test --tests '*PipelineBenchmarkTest' -Dscreenshot.benchmark=true
+        systemProperty("screenshot.benchmark", System.getProperty("screenshot.benchmark", "false"))
+        systemProperty("screenshot.benchmark.label", providers.gradleProperty("benchmarkLabel").getOrElse("latest"))
+    }
+}
+
+// Benchmarks: ./gradlew jmh, results are kept as JSON per label for comparison
+sourceSets {
+    named("jmh") {
+        compileClasspath += sourceSets.main.get().compileClasspath
+        runtimeClasspath += sourceSets.main.get().compileClasspath
+    }
+}
+
+jmh {
+    jmhVersion = "1.37"
+    fork = 1
+    warmupIterations = 2
+    iterations = 5
+    jvmArgs = listOf("-Xmx4g", "-Djava.awt.headless=true")
+    resultFormat = "JSON"
+    // a fixed name per label instead of the build timestamp, e.g. -PbenchmarkLabel=2026.10 keeps the results of a release
+    resultsFile = layout.buildDirectory.file("reports/jmh/screenshot-${providers.gradleProperty("benchmarkLabel").getOrElse("latest")}.json")
 }
 
 //kotlin {
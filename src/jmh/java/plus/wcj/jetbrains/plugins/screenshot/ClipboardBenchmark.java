@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import plus.wcj.jetbrains.plugins.screenshot.export.ImageTransferable;
+import plus.wcj.jetbrains.plugins.screenshot.png.PngEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.png.PngFilter;
+
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything the export does for the clipboard before handing the content to the system:
+ * encoding to PNG bytes, building the transferable and reading the {@code image/png} flavor back.
+ * The system clipboard itself is not available headless.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClipboardBenchmark {
+
+    @Param({"100", "5000"})
+    public int lines;
+
+    private BufferedImage image;
+
+    private PngEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        image = SyntheticCode.image(lines);
+        encoder = new PngEncoder(6, PngFilter.ADAPTIVE);
+    }
+
+    @Benchmark
+    public long prepare() throws IOException, UnsupportedFlavorException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        encoder.encode(image, bytes);
+        ImageTransferable transferable = new ImageTransferable(image, bytes.toByteArray());
+        try (InputStream png = (InputStream) transferable.getTransferData(ImageTransferable.PNG_FLAVOR)) {
+            return png.available();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import plus.wcj.jetbrains.plugins.screenshot.png.PngEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.png.PngFilter;
+import plus.wcj.jetbrains.plugins.screenshot.png.PngStreamWriter;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming a capture into PNG band by band, the way large captures are saved. A few distinct bands
+ * are painted up front and repeated, so the benchmark measures encoding and not painting.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PngEncodeBenchmark {
+
+    private static final int DISTINCT_BANDS = 4;
+
+    @Param({"100", "5000", "50000"})
+    public int lines;
+
+    @Param({"1", "6"})
+    public int level;
+
+    @Param({"ADAPTIVE", "UP"})
+    public PngFilter filter;
+
+    private PngEncoder encoder;
+
+    private BufferedImage[] bands;
+
+    private BufferedImage lastBand;
+
+    private int height;
+
+    @Setup
+    public void setUp() {
+        encoder = new PngEncoder(level, filter);
+        height = lines * SyntheticCode.LINE_HEIGHT;
+        SyntheticCode.Component component = new SyntheticCode.Component(lines);
+        int fullBands = height / EditorCapture.BAND_HEIGHT;
+        bands = new BufferedImage[Math.min(DISTINCT_BANDS, fullBands)];
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] = paint(component, i * EditorCapture.BAND_HEIGHT, EditorCapture.BAND_HEIGHT);
+        }
+        int lastHeight = height - fullBands * EditorCapture.BAND_HEIGHT;
+        lastBand = lastHeight == 0 ? null : paint(component, fullBands * EditorCapture.BAND_HEIGHT, lastHeight);
+    }
+
+    private static BufferedImage paint(SyntheticCode.Component component, int offsetY, int bandHeight) {
+        BufferedImage band = new BufferedImage(SyntheticCode.WIDTH, bandHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = band.createGraphics();
+        try {
+            graphics.setClip(0, 0, SyntheticCode.WIDTH, bandHeight);
+            graphics.setTransform(AffineTransform.getTranslateInstance(0, -offsetY));
+            component.paint(graphics);
+        } finally {
+            graphics.dispose();
+        }
+        return band;
+    }
+
+    @Benchmark
+    public long encode() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        try (PngStreamWriter png = encoder.newWriter(out, SyntheticCode.WIDTH, height, true)) {
+            int fullBands = height / EditorCapture.BAND_HEIGHT;
+            for (int i = 0; i < fullBands; i++) {
+                png.writeImage(bands[i % bands.length]);
+            }
+            if (lastBand != null) {
+                png.writeImage(lastBand);
+            }
+        }
+        return out.count;
+    }
+
+    static final class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Deterministic Java-like source of any length as painted lines, the input of the encode and clipboard
+ * benchmarks. Painting the editor itself is timed by {@code PipelineBenchmarkTest} on the platform test framework.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class SyntheticCode {
+
+    static final int WIDTH = 640;
+
+    static final int LINE_HEIGHT = 16;
+
+    private static final String[] LINES = {
+            "public final class Sample%d {",
+            "    private final Map<String, List<Integer>> values = new HashMap<>();",
+            "    /** Returns the sum of all values stored under {@code key}. */",
+            "    public int sum(String key) {",
+            "        int total = 0;",
+            "        for (int value : values.getOrDefault(key, List.of())) {",
+            "            total += value; // %d",
+            "        }",
+            "        return total;",
+            "    }",
+            "",
+            "}",
+    };
+
+    private SyntheticCode() {
+    }
+
+    static BufferedImage image(int lineCount) {
+        BufferedImage image = new BufferedImage(WIDTH, lineCount * LINE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            new Component(lineCount).paint(graphics);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /** Paints only the lines inside the clip, like the editor does. */
+    static final class Component extends JComponent {
+
+        private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 13);
+
+        private final int lineCount;
+
+        Component(int lineCount) {
+            this.lineCount = lineCount;
+            setSize(WIDTH, lineCount * LINE_HEIGHT);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D graphics = (Graphics2D) g;
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setColor(new Color(0x1E1F22));
+            Rectangle clip = graphics.getClipBounds();
+            graphics.fill(clip);
+            graphics.setFont(FONT);
+            int first = Math.max(0, clip.y / LINE_HEIGHT);
+            int last = Math.min(lineCount - 1, (clip.y + clip.height) / LINE_HEIGHT);
+            for (int line = first; line <= last; line++) {
+                graphics.setColor(line % 3 == 0 ? new Color(0xCF8E6D) : new Color(0xBCBEC4));
+                graphics.drawString(String.format(LINES[line % LINES.length], line), 4, (line + 1) * LINE_HEIGHT - 4);
+            }
+        }
+    }
+}
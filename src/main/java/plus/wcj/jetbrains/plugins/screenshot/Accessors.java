@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per class registry of the reflective accessors used to reach IDE internals.
+ * <p>
+ * Fields and methods are resolved once into {@link MethodHandle}s adapted to {@code Object} parameters,
+ * members that do not exist in the running IDE build are cached as absent as well.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class Accessors {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<ClassAccessors> REGISTRY = new ClassValue<>() {
+        @Override
+        protected ClassAccessors computeValue(Class<?> type) {
+            return new ClassAccessors(type);
+        }
+    };
+
+    private Accessors() {
+    }
+
+    /** A getter of type {@code (Object)Object} for a field declared in {@code type} or one of its superclasses. */
+    static @Nullable MethodHandle getter(Class<?> type, String fieldName) {
+        ClassAccessors accessors = REGISTRY.get(type);
+        return accessors.getters.computeIfAbsent(fieldName, accessors::findGetter).orElse(null);
+    }
+
+    /**
+     * A handle of type {@code (Object, Object...)R} for a public method of {@code type}, or a method declared in
+     * {@code type} or one of its superclasses. {@code R} is the return type of the method, boxed to {@code Object}
+     * unless it is {@code boolean}.
+     */
+    static @Nullable MethodHandle method(Class<?> type, String name, Class<?>... parameterTypes) {
+        ClassAccessors accessors = REGISTRY.get(type);
+        String key = name + Arrays.toString(parameterTypes);
+        return accessors.methods.computeIfAbsent(key, k -> accessors.findMethod(name, parameterTypes)).orElse(null);
+    }
+
+    private static final class ClassAccessors {
+
+        private final Class<?> type;
+
+        private final Map<String, Optional<MethodHandle>> getters = new ConcurrentHashMap<>();
+
+        private final Map<String, Optional<MethodHandle>> methods = new ConcurrentHashMap<>();
+
+        ClassAccessors(Class<?> type) {
+            this.type = type;
+        }
+
+        private Optional<MethodHandle> findGetter(String fieldName) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                try {
+                    Field field = c.getDeclaredField(fieldName);
+                    field.setAccessible(true);
+                    MethodHandle getter = LOOKUP.unreflectGetter(field);
+                    return Optional.of(getter.asType(MethodType.methodType(Object.class, Object.class)));
+                } catch (NoSuchFieldException ignored) {
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    return Optional.empty();
+                }
+            }
+            return Optional.empty();
+        }
+
+        private Optional<MethodHandle> findMethod(String name, Class<?>[] parameterTypes) {
+            Method method = null;
+            try {
+                method = type.getMethod(name, parameterTypes);
+            } catch (NoSuchMethodException ignored) {
+                for (Class<?> c = type; c != null && method == null; c = c.getSuperclass()) {
+                    try {
+                        method = c.getDeclaredMethod(name, parameterTypes);
+                    } catch (NoSuchMethodException ignoredToo) {
+                    }
+                }
+            }
+            if (method == null) {
+                return Optional.empty();
+            }
+            try {
+                method.setAccessible(true);
+                MethodHandle handle = LOOKUP.unreflect(method);
+                Class<?> returnType = method.getReturnType() == boolean.class ? boolean.class
+                        : method.getReturnType() == void.class ? void.class : Object.class;
+                Class<?>[] erased = new Class<?>[parameterTypes.length];
+                Arrays.fill(erased, Object.class);
+                return Optional.of(handle.asType(MethodType.methodType(returnType, Object.class, erased)));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return Optional.empty();
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.editor.ex.MarkupModelEx;
+import com.intellij.openapi.editor.ex.RangeHighlighterEx;
+import com.intellij.openapi.editor.ex.util.EditorUtil;
+import com.intellij.openapi.editor.impl.DocumentMarkupModel;
+import com.intellij.openapi.editor.impl.event.MarkupModelListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Least recently used bands of {@link EditorCapture#BAND_HEIGHT} rows, so that capturing the same code again only
+ * repaints the bands whose lines were edited or re-highlighted since.
+ * <p>
+ * Keys carry the document modification stamp. When the document changes, bands above the first changed line are
+ * moved to the new stamp and the others dropped: inserted lines shift everything below, and the lexer state of
+ * later lines may change too. Highlighters added, removed or changed drop the bands of their lines.
+ * The bands of an editor are released when it is disposed.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class BandCache {
+
+    private static final Map<Key, WritableRaster> BANDS = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Editors whose changes are listened to. */
+    private static final Set<Editor> TRACKED = new HashSet<>();
+
+    private static long bytes;
+
+    private BandCache() {
+    }
+
+    /**
+     * Everything that changes the pixels of a band apart from its lines.
+     *
+     * @param scheme color scheme by identity, a changed scheme is a new instance
+     */
+    record Look(Object scheme, Font font, int contentX, int contentWidth, int gutterWidth, int translateX,
+                double scale, int imageType) {
+    }
+
+    /**
+     * @param top       editor y of the first row of the band
+     * @param height    band height in user space, the last band is shorter
+     * @param firstLine first logical line the band shows
+     * @param lastLine  last logical line the band shows
+     */
+    record Key(Editor editor, long stamp, Look look, int top, int height, int firstLine, int lastLine) {
+
+        Key withStamp(long stamp) {
+            return new Key(editor, stamp, look, top, height, firstLine, lastLine);
+        }
+
+        boolean overlaps(int fromLine, int toLine) {
+            return lastLine >= fromLine && firstLine <= toLine;
+        }
+    }
+
+    /** Copies the cached band into {@code target}, {@code false} if there is none. */
+    static synchronized boolean copyTo(@NotNull Key key, @NotNull BufferedImage target) {
+        WritableRaster band = BANDS.get(key);
+        if (band == null) {
+            return false;
+        }
+        target.getRaster().setRect(band);
+        return true;
+    }
+
+    /** Keeps a copy of {@code band}, evicting the least recently used bands beyond {@code maxBytes}. */
+    static void put(@NotNull Key key, @NotNull BufferedImage band, long maxBytes, @Nullable Project project) {
+        long size = sizeOf(band.getRaster());
+        if (size > maxBytes) {
+            return;
+        }
+        track(key.editor(), project);
+        WritableRaster copy = band.getRaster().createCompatibleWritableRaster();
+        copy.setRect(band.getRaster());
+        synchronized (BandCache.class) {
+            WritableRaster previous = BANDS.put(key, copy);
+            bytes += size - (previous != null ? sizeOf(previous) : 0);
+            Iterator<WritableRaster> eldest = BANDS.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= sizeOf(eldest.next());
+                eldest.remove();
+            }
+        }
+    }
+
+    static synchronized void clear() {
+        BANDS.clear();
+        bytes = 0;
+    }
+
+    /** Registers the listeners that keep the bands of {@code editor} valid, once per editor and on the EDT. */
+    private static void track(Editor editor, @Nullable Project project) {
+        synchronized (BandCache.class) {
+            if (editor.isDisposed() || !TRACKED.add(editor)) {
+                return;
+            }
+        }
+        Disposable disposable = Disposer.newDisposable("Screenshot Pro band cache");
+        EditorUtil.disposeWithEditor(editor, disposable);
+        Disposer.register(disposable, () -> release(editor));
+
+        Document document = editor.getDocument();
+        document.addDocumentListener(new DocumentListener() {
+            private int firstLine;
+
+            @Override
+            public void beforeDocumentChange(@NotNull DocumentEvent event) {
+                firstLine = document.getLineNumber(event.getOffset());
+            }
+
+            @Override
+            public void documentChanged(@NotNull DocumentEvent event) {
+                rekey(editor, firstLine, document.getModificationStamp());
+            }
+        }, disposable);
+
+        MarkupModelListener markupListener = new MarkupModelListener() {
+            @Override
+            public void afterAdded(@NotNull RangeHighlighterEx highlighter) {
+                invalidate(editor, highlighter);
+            }
+
+            @Override
+            public void beforeRemoved(@NotNull RangeHighlighterEx highlighter) {
+                invalidate(editor, highlighter);
+            }
+
+            @Override
+            public void attributesChanged(@NotNull RangeHighlighterEx highlighter, boolean renderersChanged, boolean fontStyleOrColorChanged) {
+                invalidate(editor, highlighter);
+            }
+        };
+        ((MarkupModelEx) editor.getMarkupModel()).addMarkupModelListener(disposable, markupListener);
+        if (project != null) {
+            ((MarkupModelEx) DocumentMarkupModel.forDocument(document, project, true)).addMarkupModelListener(disposable, markupListener);
+        }
+    }
+
+    /** Moves the bands above {@code firstChangedLine} to {@code stamp}, drops the rest. */
+    private static synchronized void rekey(Editor editor, int firstChangedLine, long stamp) {
+        List<Map.Entry<Key, WritableRaster>> kept = new ArrayList<>();
+        for (Iterator<Map.Entry<Key, WritableRaster>> it = BANDS.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, WritableRaster> entry = it.next();
+            if (entry.getKey().editor() != editor) {
+                continue;
+            }
+            it.remove();
+            if (entry.getKey().lastLine() < firstChangedLine) {
+                kept.add(entry);
+            } else {
+                bytes -= sizeOf(entry.getValue());
+            }
+        }
+        for (Map.Entry<Key, WritableRaster> entry : kept) {
+            BANDS.put(entry.getKey().withStamp(stamp), entry.getValue());
+        }
+    }
+
+    private static void invalidate(Editor editor, RangeHighlighterEx highlighter) {
+        Document document = editor.getDocument();
+        int textLength = document.getTextLength();
+        int fromLine = document.getLineNumber(Math.min(highlighter.getAffectedAreaStartOffset(), textLength));
+        int toLine = document.getLineNumber(Math.min(highlighter.getAffectedAreaEndOffset(), textLength));
+        synchronized (BandCache.class) {
+            BANDS.entrySet().removeIf(entry -> {
+                boolean stale = entry.getKey().editor() == editor && entry.getKey().overlaps(fromLine, toLine);
+                if (stale) {
+                    bytes -= sizeOf(entry.getValue());
+                }
+                return stale;
+            });
+        }
+    }
+
+    private static synchronized void release(Editor editor) {
+        TRACKED.remove(editor);
+        BANDS.entrySet().removeIf(entry -> {
+            boolean released = entry.getKey().editor() == editor;
+            if (released) {
+                bytes -= sizeOf(entry.getValue());
+            }
+            return released;
+        });
+    }
+
+    private static long sizeOf(WritableRaster raster) {
+        DataBuffer buffer = raster.getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+}
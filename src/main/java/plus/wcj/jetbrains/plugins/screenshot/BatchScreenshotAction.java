@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.VcsDataKeys;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vcs.changes.ChangeList;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotStateProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Saves one image per file of a project view selection, a changelist or the changes of a commit.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public class BatchScreenshotAction extends DumbAwareAction {
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        boolean hasChanges = e.getData(VcsDataKeys.CHANGES) != null || e.getData(VcsDataKeys.CHANGE_LISTS) != null;
+        VirtualFile[] files = e.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null && (hasChanges || files != null && files.length > 0));
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        ScreenshotState state = ScreenshotStateProvider.getInstance().snapshot();
+        if (!state.save) {
+            ScreenshotNotifier.notifyError(project, "Batch screenshots are saved to disk, please set an Output directory in Settings.");
+            return;
+        }
+
+        Set<Change> changes = new LinkedHashSet<>();
+        ChangeList[] changeLists = e.getData(VcsDataKeys.CHANGE_LISTS);
+        if (changeLists != null) {
+            for (ChangeList changeList : changeLists) {
+                changes.addAll(changeList.getChanges());
+            }
+        }
+        Change[] selectedChanges = e.getData(VcsDataKeys.CHANGES);
+        if (selectedChanges != null) {
+            changes.addAll(Arrays.asList(selectedChanges));
+        }
+
+        // changes win over files, a changes view also provides the files of the selected changes
+        List<VirtualFile> files = new ArrayList<>();
+        if (changes.isEmpty()) {
+            VirtualFile[] selectedFiles = e.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
+            if (selectedFiles != null) {
+                files.addAll(Arrays.asList(selectedFiles));
+            }
+        }
+        if (changes.isEmpty() && files.isEmpty()) {
+            ScreenshotNotifier.notifyError(project, "Nothing selected to screenshot");
+            return;
+        }
+        ProgressManager.getInstance().run(new BatchScreenshotTask(project, state, files, new ArrayList<>(changes)));
+    }
+}
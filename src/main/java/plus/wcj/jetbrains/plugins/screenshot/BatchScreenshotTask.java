@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vcs.FilePath;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vcs.changes.BinaryContentRevision;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vcs.changes.ContentRevision;
+import com.intellij.openapi.vcs.changes.CurrentContentRevision;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightVirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+import plus.wcj.jetbrains.plugins.screenshot.encode.ImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.export.DedupeMode;
+import plus.wcj.jetbrains.plugins.screenshot.export.DedupeStore;
+import plus.wcj.jetbrains.plugins.screenshot.export.ExportWorkers;
+import plus.wcj.jetbrains.plugins.screenshot.export.ScreenshotFiles;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CapturePhase;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CaptureStats;
+import plus.wcj.jetbrains.plugins.screenshot.stats.PhaseTimer;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paints every file with the {@link OffscreenRenderer}, one at a time on the EDT, while up to
+ * {@link ExportWorkers#COUNT} painted images are encoded and written in the background.
+ * Files too large for one image are streamed to PNG band by band. A file that fails is reported at the end
+ * and does not stop the batch, as is every file that was not saved as it is.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class BatchScreenshotTask extends Task.Backgroundable {
+
+    private final ScreenshotState state;
+
+    private final List<VirtualFile> files;
+
+    private final List<Change> changes;
+
+    private final ImageEncoder encoder;
+
+    private final AtomicInteger written = new AtomicInteger();
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+    /** Files that were downscaled or streamed instead of saved as one image in the selected format. */
+    private final List<String> notes = Collections.synchronizedList(new ArrayList<>());
+
+    private long elapsedNanos;
+
+    BatchScreenshotTask(@NotNull Project project, ScreenshotState state, List<VirtualFile> files, List<Change> changes) {
+        super(project, "Exporting screenshots", true);
+        // nothing reaches the clipboard, so large files are streamed at full size instead of downscaled
+        this.state = new ScreenshotState();
+        XmlSerializerUtil.copyBean(state, this.state);
+        this.state.clipboard = false;
+        this.state.save = true;
+        this.files = files;
+        this.changes = changes;
+        this.encoder = ImageEncoder.find(this.state.imageFormat);
+    }
+
+    @Override
+    public void run(@NotNull ProgressIndicator indicator) {
+        indicator.setIndeterminate(true);
+        indicator.setText("Collecting files");
+        List<Input> inputs = collect(indicator);
+
+        indicator.setIndeterminate(false);
+        indicator.setText("Exporting screenshots");
+        long start = System.nanoTime();
+        ExecutorService pool = AppExecutorUtil.createBoundedApplicationPoolExecutor("Screenshot Pro Batch", ExportWorkers.COUNT);
+        Semaphore slots = new Semaphore(ExportWorkers.COUNT);
+        List<Future<?>> pending = new ArrayList<>();
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                Input input = inputs.get(i);
+                indicator.checkCanceled();
+                indicator.setText2(input.name());
+                indicator.setFraction((double) i / inputs.size());
+                try {
+                    VirtualFile file = input.resolve();
+                    ExportWorkers.acquire(slots, indicator);
+                    OffscreenRenderer.Rendering rendering;
+                    try {
+                        rendering = ExportWorkers.onEdt(() -> OffscreenRenderer.render(getProject(), file, state));
+                    } catch (RuntimeException e) {
+                        slots.release();
+                        throw e;
+                    }
+                    if (rendering.image() == null) {
+                        // streamed right here, so that its bands are always closed, also on cancel
+                        try {
+                            writePages(input.name(), rendering, indicator);
+                        } finally {
+                            slots.release();
+                        }
+                        continue;
+                    }
+                    pending.add(pool.submit(() -> {
+                        try {
+                            write(input.name(), rendering, indicator);
+                        } finally {
+                            slots.release();
+                        }
+                    }));
+                } catch (ProcessCanceledException e) {
+                    throw e;
+                } catch (VcsException | IOException | RuntimeException e) {
+                    failures.add(input.name() + ": " + e.getMessage());
+                }
+            }
+            for (Future<?> future : pending) {
+                ExportWorkers.await(future, indicator);
+            }
+        } finally {
+            pool.shutdownNow();
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    private List<Input> collect(ProgressIndicator indicator) {
+        List<Input> inputs = new ArrayList<>();
+        for (Change change : changes) {
+            ContentRevision revision = change.getAfterRevision() != null ? change.getAfterRevision() : change.getBeforeRevision();
+            if (revision != null && !(revision instanceof BinaryContentRevision) && !revision.getFile().getFileType().isBinary()) {
+                inputs.add(new Input(revision.getFile().getName(), null, revision));
+            }
+        }
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(getProject());
+        FileTypeManager fileTypeManager = FileTypeManager.getInstance();
+        ReadAction.run(() -> {
+            for (VirtualFile root : files) {
+                VfsUtilCore.iterateChildrenRecursively(root,
+                        file -> !fileTypeManager.isFileIgnored(file) && !fileIndex.isExcluded(file),
+                        file -> {
+                            indicator.checkCanceled();
+                            if (!file.isDirectory() && !file.getFileType().isBinary()) {
+                                inputs.add(new Input(file.getName(), file, null));
+                            }
+                            return true;
+                        });
+            }
+        });
+        return inputs;
+    }
+
+    private void writePages(String name, OffscreenRenderer.Rendering rendering, ProgressIndicator indicator) throws IOException {
+        bytesWritten.addAndGet(rendering.writePages(Paths.get(state.outputDir), ScreenshotFiles.baseName(name), state, indicator));
+        written.incrementAndGet();
+        notes.add(name + ": " + rendering.describe());
+    }
+
+    private void write(String name, OffscreenRenderer.Rendering rendering, ProgressIndicator indicator) {
+        BufferedImage image = rendering.image();
+        try {
+            Path dir = Paths.get(state.outputDir);
+            String baseName = ScreenshotFiles.baseName(name);
+            String hash = state.dedupeMode != DedupeMode.OFF ? DedupeStore.hash(image, encoder.getId() + ":" + state.jpegQuality) : null;
+            Path earlier = hash != null ? DedupeStore.find(dir, hash) : null;
+            if (earlier != null) {
+                // unchanged since the last batch, nothing is encoded
+                DedupeStore.reuse(earlier, state.dedupeMode, baseName, encoder.getExtension());
+                written.incrementAndGet();
+                return;
+            }
+            long size;
+            try (PhaseTimer encode = CaptureStats.start(CapturePhase.ENCODE)) {
+                Path out = ScreenshotFiles.write(dir, baseName, encoder.getExtension(), indicator,
+                                                 stream -> encoder.encode(image, state, stream));
+                if (hash != null) {
+                    DedupeStore.remember(hash, out);
+                }
+                size = Files.size(out);
+                encode.image(image).bytes(size);
+            }
+            bytesWritten.addAndGet(size);
+            written.incrementAndGet();
+            if (!rendering.describe().isEmpty()) {
+                notes.add(name + ": " + rendering.describe());
+            }
+        } catch (ProcessCanceledException e) {
+            // the batch reports what was written before the cancel
+        } catch (IOException | RuntimeException e) {
+            failures.add(name + ": " + e.getMessage());
+        }
+    }
+
+    /** e.g. {@code 12 files, 4.2 MB in 3.1 s (3.9 files/s, 1.4 MB/s)}. */
+    String report() {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        double megabytes = bytesWritten.get() / (1024.0 * 1024.0);
+        String report = String.format("%d files, %.1f MB in %.1f s (%.1f files/s, %.1f MB/s)",
+                                      written.get(), megabytes, seconds, written.get() / seconds, megabytes / seconds);
+        synchronized (notes) {
+            if (!notes.isEmpty()) {
+                report += "\n" + notes.size() + " not saved as they are:\n" + String.join("\n", notes);
+            }
+        }
+        synchronized (failures) {
+            if (!failures.isEmpty()) {
+                report += "\n" + failures.size() + " skipped:\n" + String.join("\n", failures);
+            }
+        }
+        return report;
+    }
+
+    @Override
+    public void onSuccess() {
+        ScreenshotNotifier.notifyBatch(getProject(), Paths.get(state.outputDir).toFile(), "Saved " + report());
+    }
+
+    @Override
+    public void onCancel() {
+        ScreenshotNotifier.notifyBatch(getProject(), Paths.get(state.outputDir).toFile(), "Cancelled, saved " + report());
+    }
+
+    /** A file on disk or a revision whose content is loaded in the background. */
+    private record Input(String name, @Nullable VirtualFile file, @Nullable ContentRevision revision) {
+
+        VirtualFile resolve() throws VcsException {
+            if (file != null) {
+                return file;
+            }
+            if (revision instanceof CurrentContentRevision current && current.getVirtualFile() != null) {
+                return current.getVirtualFile();
+            }
+            String content = revision.getContent();
+            if (content == null) {
+                throw new IllegalStateException("the revision has no content");
+            }
+            FilePath path = revision.getFile();
+            return new LightVirtualFile(path.getName(), path.getFileType(), content);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The outcome of {@link CapturePlanner#plan}.
+ *
+ * @param strategy       {@code null} when the capture cannot be made within the budget
+ * @param estimatedBytes estimated peak raster memory of a direct capture
+ * @param limitBytes     the memory the capture may use, the smaller of the budget and the free heap
+ * @param scale          factor applied to the output, {@code 1} unless {@link CaptureStrategy#DOWNSCALED}
+ * @param bandsPerPage   bands of {@link EditorCapture#BAND_HEIGHT} per file, only for {@link CaptureStrategy#PAGINATED}
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+record CapturePlan(@Nullable CaptureStrategy strategy, long estimatedBytes, long limitBytes, double scale, int bandsPerPage) {
+
+    boolean isRejected() {
+        return strategy == null;
+    }
+
+    /** Whether the capture is painted into one image, the only kind the clipboard accepts. */
+    boolean isSingleImage() {
+        return strategy == CaptureStrategy.DIRECT || strategy == CaptureStrategy.DOWNSCALED;
+    }
+
+    /** Short text for the notification, empty for ordinary direct captures. */
+    String describe() {
+        if (strategy == null) {
+            return String.format("The screenshot needs about %s, more than the %s available. Please select less code or raise the memory budget in Settings.",
+                                 megabytes(estimatedBytes), megabytes(limitBytes));
+        }
+        return switch (strategy) {
+            case DIRECT -> "";
+            case STREAMED -> String.format("Large capture (%s) streamed to disk in bands.", megabytes(estimatedBytes));
+            case DOWNSCALED -> String.format("Large capture (%s) downscaled to %d%%.", megabytes(estimatedBytes), Math.round(scale * 100));
+            case PAGINATED -> String.format("Large capture (%s) split into pages on disk.", megabytes(estimatedBytes));
+            case LINE_PAGES -> "";
+        };
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%,d MB", (bytes + (1 << 20) - 1) >> 20);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+
+/**
+ * Checks the raster size of a capture against the free heap and {@link ScreenshotState#memoryBudgetMb}
+ * before anything is allocated, and picks a {@link CaptureStrategy} that fits.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class CapturePlanner {
+
+    /** Captures above this many device pixels are streamed when they do not have to reach the clipboard. */
+    static final long STREAMING_THRESHOLD_PIXELS = 4096L * 4096L;
+
+    /** A single {@link java.awt.image.BufferedImage} cannot hold more pixels than this. */
+    static final long MAX_RASTER_PIXELS = Integer.MAX_VALUE;
+
+    /** Many image viewers and browsers refuse images taller than this. */
+    static final int MAX_PAGE_HEIGHT = Short.MAX_VALUE;
+
+    /** Below this the downscaled code is hardly readable any more. */
+    static final double MIN_DOWNSCALE = 0.5;
+
+    /** Share of the free heap a capture may take, the rest is left to the encoder and the IDE. */
+    private static final double HEAP_SHARE = 0.5;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private CapturePlanner() {
+    }
+
+    /**
+     * @param pixelWidth      device pixels
+     * @param pixelHeight     device pixels
+     * @param bandPixelHeight device pixels of one {@link EditorCapture} band, {@code 0} if the capture cannot be streamed
+     * @param copies          full size rasters alive at the same time, 2 for diff captures that merge several images
+     */
+    static CapturePlan plan(long pixelWidth, long pixelHeight, int bandPixelHeight, int copies, ScreenshotState state) {
+        long pixels = pixelWidth * pixelHeight;
+        // a supersampled raster is painted next to the output it is averaged into
+        int supersample = RenderScale.of(state).supersample();
+        long rasterPixels = pixels * supersample * supersample;
+        long estimatedBytes = pixels * BYTES_PER_PIXEL * (copies + (supersample > 1 ? supersample * supersample : 0));
+        long limitBytes = Math.min((long) state.memoryBudgetMb << 20, (long) (availableHeap() * HEAP_SHARE));
+        boolean streamable = bandPixelHeight > 0 && state.save;
+
+        if (streamable && !state.clipboard && pixels > STREAMING_THRESHOLD_PIXELS) {
+            return streamed(pixelWidth, pixelHeight, bandPixelHeight, estimatedBytes, limitBytes);
+        }
+        if (estimatedBytes <= limitBytes && rasterPixels <= MAX_RASTER_PIXELS) {
+            return new CapturePlan(CaptureStrategy.DIRECT, estimatedBytes, limitBytes, 1, 0);
+        }
+        if (state.clipboard && copies == 1) {
+            double scale = Math.floor(Math.sqrt(Math.min(limitBytes, MAX_RASTER_PIXELS * BYTES_PER_PIXEL) / (double) estimatedBytes) * 100) / 100;
+            if (rasterPixels > MAX_RASTER_PIXELS) {
+                scale = Math.min(scale, Math.floor(Math.sqrt(MAX_RASTER_PIXELS / (double) rasterPixels) * 100) / 100);
+            }
+            if (scale >= MIN_DOWNSCALE) {
+                return new CapturePlan(CaptureStrategy.DOWNSCALED, estimatedBytes, limitBytes, scale, 0);
+            }
+        }
+        if (streamable) {
+            return streamed(pixelWidth, pixelHeight, bandPixelHeight, estimatedBytes, limitBytes);
+        }
+        return new CapturePlan(null, estimatedBytes, limitBytes, 1, 0);
+    }
+
+    /**
+     * Checks pages of {@link ScreenshotState#linesPerPage} lines, {@code pagesInFlight} of them are alive at once.
+     *
+     * @param pagePixelHeight device pixels of the tallest page
+     */
+    static CapturePlan planPages(long pixelWidth, long pagePixelHeight, int pagesInFlight, ScreenshotState state) {
+        long pixels = pixelWidth * pagePixelHeight;
+        int supersample = RenderScale.of(state).supersample();
+        long estimatedBytes = pixels * BYTES_PER_PIXEL * (1 + (supersample > 1 ? supersample * supersample : 0)) * pagesInFlight;
+        long limitBytes = Math.min((long) state.memoryBudgetMb << 20, (long) (availableHeap() * HEAP_SHARE));
+        if (estimatedBytes > limitBytes || pixels * supersample * supersample > MAX_RASTER_PIXELS) {
+            return new CapturePlan(null, estimatedBytes, limitBytes, 1, 0);
+        }
+        return new CapturePlan(CaptureStrategy.LINE_PAGES, estimatedBytes, limitBytes, 1, 0);
+    }
+
+    private static CapturePlan streamed(long pixelWidth, long pixelHeight, int bandPixelHeight, long estimatedBytes, long limitBytes) {
+        if (pixelWidth * bandPixelHeight * BYTES_PER_PIXEL > limitBytes) {
+            return new CapturePlan(null, estimatedBytes, limitBytes, 1, 0);
+        }
+        if (pixelHeight > MAX_PAGE_HEIGHT) {
+            int bandsPerPage = Math.max(1, MAX_PAGE_HEIGHT / bandPixelHeight);
+            return new CapturePlan(CaptureStrategy.PAGINATED, estimatedBytes, limitBytes, 1, bandsPerPage);
+        }
+        return new CapturePlan(CaptureStrategy.STREAMED, estimatedBytes, limitBytes, 1, 0);
+    }
+
+    static long availableHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+/**
+ * How a capture is turned into pixels, chosen by {@link CapturePlanner} from the estimated raster size.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public enum CaptureStrategy {
+
+    /** One full size raster, the only strategy that keeps the clipboard at full resolution. */
+    DIRECT,
+
+    /** Painted and encoded band by band, memory is bounded by one band. File only. */
+    STREAMED,
+
+    /** One raster painted at a reduced scale so that it fits into the memory budget. */
+    DOWNSCALED,
+
+    /** Streamed into several files, each short enough for common image viewers. File only. */
+    PAGINATED,
+
+    /** One raster per page of {@link plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState#linesPerPage} lines, encoded in parallel. File only. */
+    LINE_PAGES
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.ex.EditorEx;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Ensures the caret is hidden during painting to avoid capturing it in the screenshot.
+ *
+ * @author ChangJin Wei (魏昌进)
+ */
+final class CaretVisibilityGuard implements AutoCloseable {
+
+    private static final String[] SETTERS = {"setCaretEnabled", "setCaretsEnabled", "setCaretVisible"};
+
+    private static final String[] GETTERS = {"isCaretEnabled", "isCaretsEnabled", "isCaretVisible"};
+
+    /** Resolved once per editor or caret model class, classes without a setter get an empty entry. */
+    private static final ClassValue<CaretAccess> CARET_ACCESS = new ClassValue<>() {
+        @Override
+        protected CaretAccess computeValue(Class<?> type) {
+            return new CaretAccess(find(type, SETTERS, boolean.class), find(type, GETTERS));
+        }
+    };
+
+    private final Object target;
+    private final MethodHandle setter;
+    private final Boolean previous;
+
+    CaretVisibilityGuard(Editor editor) {
+        Object target = editor instanceof EditorEx ? editor : null;
+        CaretAccess access = target == null ? null : CARET_ACCESS.get(target.getClass());
+        if (access == null || access.setter == null) {
+            target = editor.getCaretModel();
+            access = CARET_ACCESS.get(target.getClass());
+        }
+
+        this.target = access.setter == null ? null : target;
+        this.setter = access.setter;
+        this.previous = this.target == null ? null : readCurrentState(this.target, access.getter);
+
+        if (this.target != null) {
+            setCaretState(false);
+        }
+    }
+
+    private static @Nullable MethodHandle find(Class<?> type, String[] names, Class<?>... parameterTypes) {
+        for (String name : names) {
+            MethodHandle handle = Accessors.method(type, name, parameterTypes);
+            if (handle != null && (parameterTypes.length > 0 || handle.type().returnType() == boolean.class)) {
+                return handle;
+            }
+        }
+        return null;
+    }
+
+    private static Boolean readCurrentState(Object target, @Nullable MethodHandle getter) {
+        if (getter == null) {
+            return null;
+        }
+        try {
+            return (boolean) getter.invokeExact(target);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    private void setCaretState(boolean enabled) {
+        try {
+            setter.invokeExact(target, (Object) enabled);
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Override
+    public void close() {
+        if (target != null) {
+            setCaretState(previous != null ? previous : true);
+        }
+    }
+
+    private record CaretAccess(@Nullable MethodHandle setter, @Nullable MethodHandle getter) {
+    }
+}
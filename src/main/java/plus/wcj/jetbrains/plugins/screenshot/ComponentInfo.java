@@ -19,19 +19,22 @@ package plus.wcj.jetbrains.plugins.screenshot;
 
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
-import com.intellij.openapi.editor.InlayModel;
+import com.intellij.openapi.editor.Inlay;
+import com.intellij.openapi.editor.LogicalPosition;
 import com.intellij.openapi.editor.SelectionModel;
 import com.intellij.openapi.editor.colors.EditorFontType;
 import com.intellij.openapi.editor.ex.EditorGutterComponentEx;
+import com.intellij.openapi.editor.ex.util.EditorUtil;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.Key;
+import org.jetbrains.annotations.Nullable;
 import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
-import java.util.ArrayList;
-import java.util.List;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 
 /**
  * @author ChangJin Wei (魏昌进)
@@ -39,6 +42,8 @@ import java.util.List;
  */
 class ComponentInfo {
 
+    private static final Key<SelectionMetrics> SELECTION_METRICS = Key.create("screenshot.selectionMetrics");
+
     public int x, y;
 
     public int width, height;
@@ -73,6 +78,13 @@ class ComponentInfo {
             getMaxSelectedLineWidth(editor, selectionStart, selectionEnd, project);
             this.translateY = -start.y;
             selectionModel.removeSelection();
+        } else if (config.visibleAreaOnly && editor.getComponent().isShowing()) {
+            // only the viewport, so neither measuring nor painting depends on the length of the file
+            Rectangle visibleArea = editor.getScrollingModel().getVisibleArea();
+            this.width = visibleArea.width;
+            this.height = visibleArea.height;
+            this.translateX = -visibleArea.x;
+            this.translateY = -visibleArea.y;
         } else {
             int lineCount = document.getLineCount();
             int lastLineOffset = document.getLineEndOffset(lineCount - 1);
@@ -99,17 +111,17 @@ class ComponentInfo {
             this.width = 0;
             this.height = 0;
         }
-        this.diffLeft = gutterComponent.getLocationOnScreen().getX() > contentInfo.component.getLocationOnScreen().getX();
+        // relative to each other instead of on screen, editors that are not showing have no screen location
+        this.diffLeft = SwingUtilities.convertPoint(gutterComponent, 0, 0, contentInfo.component).x > 0;
     }
 
     public void translateXY(JComponent contentComponent, ComponentInfo contentInfo, ComponentInfo gutterInfo) {
         if (gutterInfo.show) {
             if (gutterInfo.diffLeft) {
                 this.x = 0;
-                this.translateX = 0;
             } else {
                 this.x = gutterInfo.width;
-                this.translateX = gutterInfo.width;
+                this.translateX += gutterInfo.width;
             }
         }
         this.translateX -= this.miniLineIndent;
@@ -128,79 +140,148 @@ class ComponentInfo {
 
 
     public void paint(Graphics2D graphics) {
+        paint(graphics, 0, 1);
+    }
+
+    /**
+     * Paints the band of the capture that starts at {@code offsetY}, the graphics origin is the top of the band.
+     *
+     * @param scale output scale, {@code offsetY} is in unscaled coordinates
+     */
+    public void paint(Graphics2D graphics, int offsetY, double scale) {
+        paint(graphics, 0, offsetY, scale);
+    }
+
+    /** Like {@link #paint(Graphics2D, int, double)}, shifted right by {@code offsetX} to share one image with other components. */
+    public void paint(Graphics2D graphics, int offsetX, int offsetY, double scale) {
+        paint(graphics, offsetX, offsetY, scale, null);
+    }
+
+    /** Like {@link #paint(Graphics2D, int, int, double)}, but only inside {@code bounds}, in unscaled image coordinates. */
+    public void paint(Graphics2D graphics, int offsetX, int offsetY, double scale, @Nullable Rectangle bounds) {
         if (show) {
-            graphics.setClip(this.x, this.y, this.width, this.height);
-            AffineTransform affineTransform = new AffineTransform();
-            affineTransform.translate(this.translateX, this.translateY);
+            Rectangle clip = new Rectangle(this.x + offsetX, this.y - offsetY, this.width, this.height);
+            if (bounds != null) {
+                clip = clip.intersection(bounds);
+                if (clip.isEmpty()) {
+                    return;
+                }
+            }
+            if (scale == 1) {
+                graphics.setClip(clip);
+            } else {
+                graphics.setClip(new Rectangle2D.Double(clip.x * scale, clip.y * scale, clip.width * scale, clip.height * scale));
+            }
+            AffineTransform affineTransform = AffineTransform.getScaleInstance(scale, scale);
+            affineTransform.translate(this.translateX + offsetX, this.translateY - offsetY);
             graphics.setTransform(affineTransform);
             component.paint(graphics);
             graphics.setTransform(new AffineTransform());
         }
     }
 
+    /**
+     * Tops of the pages of {@code linesPerPage} logical lines in capture coordinates, followed by {@code height}.
+     * The tops come from the logical to visual mapping, so a soft wrapped line is never cut and a folded region
+     * counts with all of its lines but takes the room of one row.
+     */
+    int[] pageBreaks(Editor editor, int linesPerPage, int height) {
+        Document document = editor.getDocument();
+        int firstLine = hasSelection ? document.getLineNumber(selectionStart) : 0;
+        int lastLine = hasSelection ? document.getLineNumber(selectionEnd) : Math.max(0, document.getLineCount() - 1);
+        int[] breaks = new int[(lastLine - firstLine) / linesPerPage + 2];
+        int count = 1;
+        for (int line = firstLine + linesPerPage; line <= lastLine; line += linesPerPage) {
+            int y = editor.logicalPositionToXY(new LogicalPosition(line, 0)).y + translateY;
+            // lines inside one folded region share a row, its page starts only once
+            if (y > breaks[count - 1] && y < height) {
+                breaks[count++] = y;
+            }
+        }
+        breaks[count++] = height;
+        return Arrays.copyOf(breaks, count);
+    }
+
+    /**
+     * Measures the selected lines in one pass over the document text, the result is kept on the editor
+     * until the document, the selection, the font or the tab size changes.
+     */
     private void getMaxSelectedLineWidth(Editor editor, int selectionStart, int selectionEnd, Project project) {
-        int maxWidth = 0;
-        int minIndentsY = Integer.MAX_VALUE;
+        Document document = editor.getDocument();
+        long stamp = document.getModificationStamp();
+        Font font = editor.getColorsScheme().getFont(EditorFontType.PLAIN);
         int tabSize = tabSize(editor, project);
-        List<Integer> LineIndentList = new ArrayList<>();
 
-        InlayModel inlayModel = editor.getInlayModel();
+        SelectionMetrics metrics = editor.getUserData(SELECTION_METRICS);
+        if (metrics == null || !metrics.matches(stamp, selectionStart, selectionEnd, font, tabSize)) {
+            metrics = measure(editor, document, selectionStart, selectionEnd, tabSize, stamp, font);
+            editor.putUserData(SELECTION_METRICS, metrics);
+        }
+        this.width = metrics.width;
+        this.miniLineIndent = metrics.miniLineIndent;
+    }
 
-        Document document = editor.getDocument();
+    private static SelectionMetrics measure(Editor editor, Document document, int selectionStart, int selectionEnd,
+                                            int tabSize, long stamp, Font font) {
+        CharSequence text = document.getImmutableCharSequence();
         int startLine = document.getLineNumber(selectionStart);
         int endLine = document.getLineNumber(selectionEnd);
+
+        // one inlay lookup for the whole selection instead of one per line
+        int[] inlayWidths = new int[endLine - startLine + 1];
+        for (Inlay<?> inlay : editor.getInlayModel()
+                .getAfterLineEndElementsInRange(document.getLineStartOffset(startLine), document.getLineEndOffset(endLine))) {
+            int index = document.getLineNumber(inlay.getOffset()) - startLine;
+            inlayWidths[index] = Math.max(inlayWidths[index], inlay.getRenderer().calcWidthInPixels(inlay));
+        }
+
+        int maxWidth = 0;
+        int minIndentsY = Integer.MAX_VALUE;
+        int minIndent = Integer.MAX_VALUE;
         for (int line = startLine; line <= endLine; line++) {
             int lineStart = document.getLineStartOffset(line);
             int lineEnd = document.getLineEndOffset(line);
 
             Point pEnd = editor.visualPositionToXY(editor.offsetToVisualPosition(lineEnd));
-            minIndentsY = getMinIndentsY(pEnd, minIndentsY, document, lineStart, lineEnd, tabSize, LineIndentList);
-
-            int inlayWidth = inlayModel.getAfterLineEndElementsForLogicalLine(line)
-                    .stream()
-                    .mapToInt(inlay -> inlay.getRenderer().calcWidthInPixels(inlay))
-                    .max()
-                    .orElse(0);
-
-            maxWidth = Math.max(maxWidth, pEnd.x + inlayWidth);
+            // lines folded into the previous visual line do not count for the indent
+            if (pEnd.y != minIndentsY) {
+                minIndentsY = pEnd.y;
+                if (lineStart != lineEnd) {
+                    minIndent = Math.min(minIndent, indent(text, lineStart, lineEnd, tabSize) - 1);
+                }
+            }
 
+            maxWidth = Math.max(maxWidth, pEnd.x + inlayWidths[line - startLine]);
         }
 
-        Font font = editor.getColorsScheme().getFont(EditorFontType.PLAIN);
-        Graphics2D graphics = (Graphics2D) editor.getComponent().getGraphics();
-        FontMetrics fontMetrics = graphics.getFontMetrics(font);
-
-        this.width = maxWidth + 24;
-        this.miniLineIndent = fontMetrics
-                .stringWidth(" ".repeat(Math.max(LineIndentList.stream()
-                                .mapToInt(value -> value)
-                                .min()
-                                .orElse(0)
-                        , 0)));
+        int indent = minIndent == Integer.MAX_VALUE ? 0 : Math.max(minIndent, 0);
+        // the editor caches the space width of its plain font, no Graphics is needed
+        int miniLineIndent = indent * EditorUtil.getPlainSpaceWidth(editor);
+        return new SelectionMetrics(stamp, selectionStart, selectionEnd, font, tabSize, maxWidth + 24, miniLineIndent);
     }
 
-    private static int getMinIndentsY(Point pEnd, int minIndentsY, Document document, int lineStart, int lineEnd, int tabSize, List<Integer> LineIndentList) {
-        if (pEnd.y != minIndentsY) {
-            minIndentsY = pEnd.y;
-            if (lineStart == lineEnd) {
-                return minIndentsY;
-            }
-            String text = document.getText(new TextRange(lineStart, lineEnd));
-            int indent = 0;
-            for (int i = 0; i < text.length(); i++) {
-                char ch = text.charAt(i);
-                if (' ' == ch) {
-                    indent++;
-                    continue;
-                } else if (Character.isWhitespace(ch)) {
-                    indent += tabSize;
-                    continue;
-                }
+    static int indent(CharSequence text, int lineStart, int lineEnd, int tabSize) {
+        int indent = 0;
+        for (int i = lineStart; i < lineEnd; i++) {
+            char ch = text.charAt(i);
+            if (' ' == ch) {
+                indent++;
+            } else if (Character.isWhitespace(ch)) {
+                indent += tabSize;
+            } else {
                 break;
             }
-            LineIndentList.add(indent - 1);
         }
-        return minIndentsY;
+        return indent;
+    }
+
+    private record SelectionMetrics(long stamp, int selectionStart, int selectionEnd, Font font, int tabSize,
+                                    int width, int miniLineIndent) {
+
+        boolean matches(long stamp, int selectionStart, int selectionEnd, Font font, int tabSize) {
+            return this.stamp == stamp && this.selectionStart == selectionStart && this.selectionEnd == selectionEnd
+                    && this.font.equals(font) && this.tabSize == tabSize;
+        }
     }
 
 
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.diff.tools.simple.SimpleDiffChange;
+import com.intellij.diff.util.Side;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The changed hunks of a two sided diff with some unchanged lines around each, stacked with a separator in between,
+ * so that the capture grows with the change instead of with the files.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class DiffHunkLayout {
+
+    final List<Hunk> hunks;
+
+    final int separatorHeight;
+
+    /** Height of the collapsed capture in user space. */
+    final int height;
+
+    private DiffHunkLayout(List<Hunk> hunks, int separatorHeight, int height) {
+        this.hunks = hunks;
+        this.separatorHeight = separatorHeight;
+        this.height = height;
+    }
+
+    /**
+     * Merges the changes, widened by {@code contextLines} on both sides, into hunks.
+     * Unchanged lines pair up one to one, so hunks that touch on one side touch on the other one as well.
+     *
+     * @return {@code null} if nothing changed or the hunks are not smaller than the whole files
+     */
+    static @Nullable DiffHunkLayout of(@NotNull List<SimpleDiffChange> changes, EditorCapture left, EditorCapture right,
+                                       int contextLines, int separatorHeight) {
+        List<int[]> ranges = new ArrayList<>();
+        for (SimpleDiffChange change : changes) {
+            int start1 = Math.max(0, change.getStartLine(Side.LEFT) - contextLines);
+            int end1 = change.getEndLine(Side.LEFT) + contextLines;
+            int start2 = Math.max(0, change.getStartLine(Side.RIGHT) - contextLines);
+            int end2 = change.getEndLine(Side.RIGHT) + contextLines;
+            int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && (start1 <= last[1] || start2 <= last[3])) {
+                last[1] = Math.max(last[1], end1);
+                last[3] = Math.max(last[3], end2);
+            } else {
+                ranges.add(new int[]{start1, end1, start2, end2});
+            }
+        }
+        if (ranges.isEmpty()) {
+            return null;
+        }
+
+        List<Hunk> hunks = new ArrayList<>(ranges.size());
+        int y = 0;
+        for (int[] range : ranges) {
+            if (!hunks.isEmpty()) {
+                y += separatorHeight;
+            }
+            int leftTop = left.lineY(range[0]);
+            int rightTop = right.lineY(range[2]);
+            Hunk hunk = new Hunk(leftTop, left.lineY(range[1]) - leftTop, rightTop, right.lineY(range[3]) - rightTop, y);
+            hunks.add(hunk);
+            y += hunk.height();
+        }
+        if (y >= Math.max(left.height, right.height)) {
+            return null;
+        }
+        return new DiffHunkLayout(hunks, separatorHeight, y);
+    }
+
+    /**
+     * One hunk, the rows {@code leftTop .. leftTop + leftHeight} of the left capture and likewise of the right one,
+     * painted at {@code y} of the collapsed capture.
+     */
+    record Hunk(int leftTop, int leftHeight, int rightTop, int rightHeight, int y) {
+
+        int height() {
+            return Math.max(leftHeight, rightHeight);
+        }
+    }
+}
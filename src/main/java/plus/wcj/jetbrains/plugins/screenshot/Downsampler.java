@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import plus.wcj.jetbrains.plugins.screenshot.png.PngEncoder;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Box filter that averages {@code factor x factor} blocks of an int raster into one pixel. Anti-aliased text that was
+ * painted larger keeps smoother edges than text painted at the output size. Large images are split into stripes of
+ * rows on the encoder pool.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class Downsampler {
+
+    /** Output rows per task. */
+    private static final int STRIPE_ROWS = 64;
+
+    /** Below this many output pixels the work is done on the calling thread. */
+    private static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    private Downsampler() {
+    }
+
+    /** @param image a {@code TYPE_INT_RGB} or {@code TYPE_INT_ARGB} image whose size is a multiple of {@code factor} */
+    static BufferedImage downsample(BufferedImage image, int factor) {
+        int width = image.getWidth() / factor;
+        int height = image.getHeight() / factor;
+        BufferedImage result = new BufferedImage(width, height, image.getType());
+        int[] source = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int[] target = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+        boolean alpha = image.getColorModel().hasAlpha();
+
+        if ((long) width * height < PARALLEL_THRESHOLD) {
+            rows(source, target, width, factor, alpha, 0, height);
+        } else {
+            ForkJoinTask<?>[] stripes = new ForkJoinTask<?>[(height + STRIPE_ROWS - 1) / STRIPE_ROWS];
+            for (int i = 0; i < stripes.length; i++) {
+                int from = i * STRIPE_ROWS;
+                int to = Math.min(height, from + STRIPE_ROWS);
+                stripes[i] = PngEncoder.pool().submit(() -> rows(source, target, width, factor, alpha, from, to));
+            }
+            for (ForkJoinTask<?> stripe : stripes) {
+                stripe.join();
+            }
+        }
+        return result;
+    }
+
+    private static void rows(int[] source, int[] target, int width, int factor, boolean alpha, int from, int to) {
+        int sourceWidth = width * factor;
+        int samples = factor * factor;
+        int half = samples / 2;
+        for (int y = from; y < to; y++) {
+            int row = y * factor * sourceWidth;
+            for (int x = 0; x < width; x++) {
+                int a = 0, r = 0, g = 0, b = 0;
+                for (int dy = 0; dy < factor; dy++) {
+                    int p = row + dy * sourceWidth + x * factor;
+                    for (int dx = 0; dx < factor; dx++) {
+                        int argb = source[p + dx];
+                        a += argb >>> 24;
+                        r += (argb >> 16) & 0xFF;
+                        g += (argb >> 8) & 0xFF;
+                        b += argb & 0xFF;
+                    }
+                }
+                int alphaBits = alpha ? (a + half) / samples << 24 : 0xFF000000;
+                target[y * width + x] = alphaBits | (r + half) / samples << 16 | (g + half) / samples << 8 | (b + half) / samples;
+            }
+        }
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.LogicalPosition;
+import com.intellij.openapi.editor.VisualPosition;
+import com.intellij.openapi.editor.colors.EditorFontType;
+import com.intellij.openapi.editor.ex.EditorGutterComponentEx;
+import com.intellij.openapi.editor.ex.util.EditorUtil;
+import com.intellij.openapi.project.Project;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+import plus.wcj.jetbrains.plugins.screenshot.export.PagedImage;
+import plus.wcj.jetbrains.plugins.screenshot.export.StreamedImage;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the content and gutter of an editor once, then paints them either into one image or
+ * in bands of {@link #BAND_HEIGHT} rows by moving the clip and {@code translateY} of {@link ComponentInfo}.
+ * <p>
+ * The caret stays hidden and the selection removed until {@link #close()}.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class EditorCapture implements StreamedImage {
+
+    /** Multiple of 4 and 8, so bands line up on whole device pixels for the common HiDPI scales. */
+    static final int BAND_HEIGHT = 512;
+
+    private final Editor editor;
+
+    private final Project project;
+
+    private final CaretVisibilityGuard caretGuard;
+
+    private final Runnable release;
+
+    final ComponentInfo contentInfo;
+
+    final ComponentInfo gutterInfo;
+
+    /** Size in user space. */
+    final int width, height;
+
+    private final long modificationStamp;
+
+    private final RasterType rasterType;
+
+    private final RenderScale renderScale;
+
+    /** Bands are never supersampled, they are written as they are painted. */
+    private final RenderScale bandScale;
+
+    /** Budget of the {@link BandCache}, {@code 0} paints every band. */
+    private final long cacheBytes;
+
+    private BandCache.Look look;
+
+    private BufferedImage band, lastBand;
+
+    private int deviceWidth, deviceHeight;
+
+    private boolean closed;
+
+    EditorCapture(Editor editor, ScreenshotState state, Project project) {
+        this(editor, state, project, () -> {
+        });
+    }
+
+    /** @param release run last in {@link #close()}, e.g. to release an editor created for this capture */
+    EditorCapture(Editor editor, ScreenshotState state, Project project, Runnable release) {
+        this.editor = editor;
+        this.project = project;
+        this.release = release;
+        this.caretGuard = new CaretVisibilityGuard(editor);
+
+        JComponent contentComponent = editor.getContentComponent();
+        EditorGutterComponentEx gutterComponent = (EditorGutterComponentEx) editor.getGutter();
+
+        try {
+            this.contentInfo = new ComponentInfo(editor, contentComponent, state, project);
+            this.gutterInfo = new ComponentInfo(gutterComponent, contentInfo, state);
+        } catch (RuntimeException e) {
+            caretGuard.close();
+            release.run();
+            throw e;
+        }
+
+        contentInfo.translateXY(contentComponent, contentInfo, gutterInfo);
+        gutterInfo.translateXY(gutterComponent, contentInfo, gutterInfo);
+
+        this.width = gutterInfo.width + contentInfo.width;
+        this.height = Math.max(gutterInfo.height, contentInfo.height);
+        this.modificationStamp = editor.getDocument().getModificationStamp();
+        this.rasterType = state.rasterType;
+        this.renderScale = RenderScale.of(state);
+        this.bandScale = new RenderScale(renderScale.output(), 1);
+        this.cacheBytes = (long) state.renderCacheMb << 20;
+    }
+
+    /** Estimated width in device pixels. */
+    long getPixelWidth() {
+        return (long) Math.ceil(width * deviceScale());
+    }
+
+    /** Estimated height in device pixels. */
+    long getPixelHeight() {
+        return (long) Math.ceil(height * deviceScale());
+    }
+
+    /** Estimated height of one band in device pixels. */
+    int getBandPixelHeight() {
+        return (int) Math.ceil(Math.min(BAND_HEIGHT, height) * deviceScale());
+    }
+
+    /** Top of the capture in editor coordinates, e.g. of the selection or the visible area. */
+    int getTop() {
+        return -contentInfo.translateY;
+    }
+
+    /** Top of logical {@code line} in capture coordinates, the capture height past the last line. */
+    int lineY(int line) {
+        if (line >= editor.getDocument().getLineCount()) {
+            return height;
+        }
+        return Math.min(height, Math.max(0, editor.logicalPositionToXY(new LogicalPosition(line, 0)).y + contentInfo.translateY));
+    }
+
+    /** Estimated device pixels of {@code userSpace} pixels of this capture, e.g. of a collapsed diff. */
+    long toPixels(int userSpace) {
+        return (long) Math.ceil(userSpace * deviceScale());
+    }
+
+    private double deviceScale() {
+        return renderScale.deviceScale(editor.getComponent());
+    }
+
+    BufferedImage paint() {
+        return paint(1);
+    }
+
+    /**
+     * Paints the whole capture into one image of the configured {@link RasterType} and {@link RenderScale},
+     * {@code scale} below 1 gives a downscaled image.
+     */
+    BufferedImage paint(double scale) {
+        BufferedImage image = renderScale.createImage(width, height, scale, rasterType.paintType);
+        if (cacheBytes > 0 && scale == 1 && renderScale.supersample() == 1) {
+            // band by band, so that unchanged bands come from the cache
+            if (band == null) {
+                allocateBands();
+            }
+            WritableRaster raster = image.getRaster();
+            int y = 0;
+            for (int i = 0; i < getBandCount(); i++) {
+                Raster painted = paintBand(i).getRaster();
+                raster.setRect(0, y, painted);
+                y += painted.getHeight();
+            }
+            return rasterType.finish(image);
+        }
+        Graphics2D graphics = image.createGraphics();
+        try {
+            double paintScale = renderScale.paintScale(scale);
+            contentInfo.paint(graphics, 0, paintScale);
+            gutterInfo.paint(graphics, 0, paintScale);
+        } finally {
+            graphics.dispose();
+        }
+        return rasterType.finish(renderScale.finish(image));
+    }
+
+    /** Paints the whole capture into {@code graphics} at {@code offsetX}, e.g. one side of a diff. */
+    void paint(Graphics2D graphics, int offsetX) {
+        paint(graphics, offsetX, 1);
+    }
+
+    /** @param scale the {@link ComponentInfo#paint} scale, {@code offsetX} is in user space */
+    void paint(Graphics2D graphics, int offsetX, double scale) {
+        contentInfo.paint(graphics, offsetX, 0, scale);
+        gutterInfo.paint(graphics, offsetX, 0, scale);
+    }
+
+    /**
+     * Paints {@code rows} user space rows of the capture from {@code top} at {@code y}, e.g. one hunk of a collapsed diff.
+     *
+     * @param scale the {@link ComponentInfo#paint} scale, the other arguments are in user space
+     */
+    void paintRows(Graphics2D graphics, int offsetX, int top, int rows, int y, double scale) {
+        Rectangle bounds = new Rectangle(offsetX, y, width, rows);
+        contentInfo.paint(graphics, offsetX, top - y, scale, bounds);
+        gutterInfo.paint(graphics, offsetX, top - y, scale, bounds);
+    }
+
+    /**
+     * Splits the bands into pages of {@code bandsPerPage} bands, each exported as its own file.
+     * Closing any page closes this capture, the exporter does so once all pages are written.
+     */
+    List<StreamedImage> pages(int bandsPerPage) {
+        int bandCount = getBandCount();
+        List<StreamedImage> pages = new ArrayList<>();
+        for (int first = 0; first < bandCount; first += bandsPerPage) {
+            pages.add(new Page(first, Math.min(bandsPerPage, bandCount - first)));
+        }
+        return pages;
+    }
+
+    /** Splits the capture into pages of {@code linesPerPage} logical lines, each painted into its own image. */
+    LinePages linePages(int linesPerPage) {
+        return new LinePages(contentInfo.pageBreaks(editor, linesPerPage, height));
+    }
+
+    /** Allocates the band buffers, must be called before the capture is handed to the exporter. */
+    void allocateBands() {
+        int bandCount = getBandCount();
+        band = bandScale.createImage(width, Math.min(BAND_HEIGHT, height), 1, rasterType.paintType);
+        int lastHeight = height - (bandCount - 1) * BAND_HEIGHT;
+        lastBand = lastHeight == Math.min(BAND_HEIGHT, height) ? band : bandScale.createImage(width, lastHeight, 1, rasterType.paintType);
+
+        deviceWidth = band.getRaster().getWidth();
+        deviceHeight = (bandCount - 1) * band.getRaster().getHeight() + lastBand.getRaster().getHeight();
+    }
+
+    @Override
+    public int getWidth() {
+        return deviceWidth;
+    }
+
+    @Override
+    public int getHeight() {
+        return deviceHeight;
+    }
+
+    @Override
+    public int getBandCount() {
+        return (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    }
+
+    @Override
+    public boolean hasAlpha() {
+        return rasterType == RasterType.ARGB;
+    }
+
+    @Override
+    public BufferedImage paintBand(int index) {
+        checkUnchanged();
+        BufferedImage target = index == getBandCount() - 1 ? lastBand : band;
+        BandCache.Key key = cacheKey(index);
+        if (key != null && BandCache.copyTo(key, target)) {
+            return target;
+        }
+        Arrays.fill(((DataBufferInt) target.getRaster().getDataBuffer()).getData(), 0);
+
+        int offsetY = index * BAND_HEIGHT;
+        Graphics2D graphics = target.createGraphics();
+        try {
+            contentInfo.paint(graphics, offsetY, bandScale.paintScale(1));
+            gutterInfo.paint(graphics, offsetY, bandScale.paintScale(1));
+        } finally {
+            graphics.dispose();
+        }
+        if (key != null) {
+            BandCache.put(key, target, cacheBytes, project);
+        }
+        return target;
+    }
+
+    private void checkUnchanged() {
+        if (editor.isDisposed()) {
+            throw new IllegalStateException("The editor was closed during capture");
+        }
+        if (editor.getDocument().getModificationStamp() != modificationStamp) {
+            throw new IllegalStateException("The document was modified during capture");
+        }
+    }
+
+    /** The lines a band shows and everything else its pixels depend on, {@code null} if the cache is off. */
+    private BandCache.Key cacheKey(int index) {
+        if (cacheBytes == 0) {
+            return null;
+        }
+        if (look == null) {
+            look = new BandCache.Look(editor.getColorsScheme(), editor.getColorsScheme().getFont(EditorFontType.PLAIN),
+                                      contentInfo.x, contentInfo.width, gutterInfo.width, contentInfo.translateX,
+                                      bandScale.deviceScale(editor.getComponent()), rasterType.paintType);
+        }
+        int offsetY = index * BAND_HEIGHT;
+        int bandHeight = Math.min(BAND_HEIGHT, height - offsetY);
+        int top = offsetY - contentInfo.translateY;
+        Document document = editor.getDocument();
+        int firstLine = editor.visualToLogicalPosition(new VisualPosition(editor.yToVisualLine(top), 0)).line;
+        // a folded region on the last row shows the lines up to its end
+        int lastLine = document.getLineNumber(EditorUtil.getVisualLineEndOffset(editor, editor.yToVisualLine(top + bandHeight - 1)));
+        return new BandCache.Key(editor, modificationStamp, look, top, bandHeight, firstLine, lastLine);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        band = null;
+        lastBand = null;
+        try {
+            if (contentInfo.hasSelection && !editor.isDisposed()) {
+                editor.getSelectionModel().setSelection(contentInfo.selectionStart, contentInfo.selectionEnd);
+            }
+        } finally {
+            try {
+                caretGuard.close();
+            } finally {
+                release.run();
+            }
+        }
+    }
+
+    private final class Page implements StreamedImage {
+
+        private final int firstBand;
+
+        private final int bandCount;
+
+        Page(int firstBand, int bandCount) {
+            this.firstBand = firstBand;
+            this.bandCount = bandCount;
+        }
+
+        @Override
+        public int getWidth() {
+            return deviceWidth;
+        }
+
+        @Override
+        public int getHeight() {
+            boolean containsLast = firstBand + bandCount == EditorCapture.this.getBandCount();
+            int last = (containsLast ? lastBand : band).getRaster().getHeight();
+            return (bandCount - 1) * band.getRaster().getHeight() + last;
+        }
+
+        @Override
+        public int getBandCount() {
+            return bandCount;
+        }
+
+        @Override
+        public boolean hasAlpha() {
+            return EditorCapture.this.hasAlpha();
+        }
+
+        @Override
+        public BufferedImage paintBand(int index) {
+            return EditorCapture.this.paintBand(firstBand + index);
+        }
+
+        @Override
+        public void close() {
+            EditorCapture.this.close();
+        }
+    }
+
+    /** Pages from {@link ComponentInfo#pageBreaks}, painted by moving {@code translateY} to the top of the page. */
+    final class LinePages implements PagedImage {
+
+        /** Tops of the pages in user space, followed by the bottom of the last one. */
+        private final int[] breaks;
+
+        LinePages(int[] breaks) {
+            this.breaks = breaks;
+        }
+
+        @Override
+        public int getPageCount() {
+            return breaks.length - 1;
+        }
+
+        /** Estimated height of the tallest page in device pixels. */
+        long getMaxPagePixelHeight() {
+            int max = 0;
+            for (int i = 0; i < getPageCount(); i++) {
+                max = Math.max(max, breaks[i + 1] - breaks[i]);
+            }
+            return (long) Math.ceil(max * deviceScale());
+        }
+
+        @Override
+        public BufferedImage paintPage(int index) {
+            checkUnchanged();
+            int top = breaks[index];
+            BufferedImage image = renderScale.createImage(width, breaks[index + 1] - top, 1, rasterType.paintType);
+            Graphics2D graphics = image.createGraphics();
+            try {
+                contentInfo.paint(graphics, top, renderScale.paintScale(1));
+                gutterInfo.paint(graphics, top, renderScale.paintScale(1));
+            } finally {
+                graphics.dispose();
+            }
+            return image;
+        }
+
+        @Override
+        public BufferedImage finish(BufferedImage page) {
+            return rasterType.finish(renderScale.finish(page));
+        }
+
+        @Override
+        public void close() {
+            EditorCapture.this.close();
+        }
+    }
+}
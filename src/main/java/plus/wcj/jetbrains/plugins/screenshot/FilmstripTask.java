@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vcs.AbstractVcs;
+import com.intellij.openapi.vcs.ProjectLevelVcsManager;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vcs.history.VcsFileRevision;
+import com.intellij.openapi.vcs.history.VcsHistoryProvider;
+import com.intellij.openapi.vcs.history.VcsHistorySession;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.vcsUtil.VcsUtil;
+import org.jetbrains.annotations.NotNull;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+import plus.wcj.jetbrains.plugins.screenshot.export.ExportWorkers;
+import plus.wcj.jetbrains.plugins.screenshot.export.ScreenshotFiles;
+import plus.wcj.jetbrains.plugins.screenshot.png.ApngWriter;
+import plus.wcj.jetbrains.plugins.screenshot.png.PngEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CapturePhase;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CaptureStats;
+import plus.wcj.jetbrains.plugins.screenshot.stats.PhaseTimer;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Renders the last {@link ScreenshotState#filmstripRevisions} revisions of a file with the {@link OffscreenRenderer}
+ * and saves them as one animated PNG, oldest first.
+ * <p>
+ * Revision contents are loaded in parallel. Painting happens on the EDT one revision after another, with only that
+ * revision open in an editor, while up to
+ * {@link ExportWorkers#COUNT} frames are compared with their predecessor and encoded in the background. A frame keeps
+ * only the rectangle that changed, the frames are assembled in revision order by {@link ApngWriter}.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class FilmstripTask extends Task.Backgroundable {
+
+    /** How long every revision is shown. */
+    static final int FRAME_MILLIS = 1500;
+
+    private final VirtualFile file;
+
+    private final ScreenshotState state;
+
+    private final RenderScale renderScale;
+
+    private final PngEncoder encoder;
+
+    private Path output;
+
+    private int frameCount;
+
+    private long elapsedNanos;
+
+    FilmstripTask(@NotNull Project project, @NotNull VirtualFile file, @NotNull ScreenshotState state) {
+        super(project, "Exporting file history", true);
+        this.file = file;
+        this.state = state;
+        this.renderScale = RenderScale.of(state);
+        this.encoder = new PngEncoder(state.pngCompressionLevel, state.pngFilter);
+    }
+
+    @Override
+    public void run(@NotNull ProgressIndicator indicator) {
+        long start = System.nanoTime();
+        indicator.setIndeterminate(true);
+        indicator.setText("Loading history of " + file.getName());
+        List<VcsFileRevision> revisions = revisions();
+        if (revisions.size() < 2) {
+            throw new IllegalStateException(file.getName() + " has no earlier revisions");
+        }
+
+        ExecutorService pool = AppExecutorUtil.createBoundedApplicationPoolExecutor("Screenshot Pro Filmstrip", ExportWorkers.COUNT);
+        try {
+            List<String> texts = load(revisions, pool, indicator);
+            List<ApngWriter.Frame> frames = render(revisions, texts, pool, indicator);
+
+            indicator.setText("Saving " + file.getName());
+            try (PhaseTimer write = CaptureStats.start(CapturePhase.WRITE)) {
+                output = ScreenshotFiles.write(Paths.get(state.outputDir), ScreenshotFiles.baseName(file.getName() + "_history"), "png",
+                                               indicator, out -> ApngWriter.write(out, frames, FRAME_MILLIS));
+                write.bytes(Files.size(output));
+            }
+            frameCount = frames.size();
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            pool.shutdownNow();
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    /** The newest revisions, oldest first. */
+    private List<VcsFileRevision> revisions() {
+        AbstractVcs vcs = ReadAction.compute(() -> ProjectLevelVcsManager.getInstance(getProject()).getVcsFor(file));
+        VcsHistoryProvider provider = vcs != null ? vcs.getVcsHistoryProvider() : null;
+        if (provider == null) {
+            throw new IllegalStateException(file.getName() + " is not under version control");
+        }
+        try {
+            VcsHistorySession session = provider.createSessionFor(VcsUtil.getFilePath(file));
+            List<VcsFileRevision> history = session != null ? session.getRevisionList() : List.of();
+            List<VcsFileRevision> newest = new ArrayList<>(history.subList(0, Math.min(state.filmstripRevisions, history.size())));
+            Collections.reverse(newest);
+            return newest;
+        } catch (VcsException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private List<String> load(List<VcsFileRevision> revisions, ExecutorService pool, ProgressIndicator indicator) {
+        List<Future<String>> pending = new ArrayList<>();
+        for (VcsFileRevision revision : revisions) {
+            pending.add(pool.submit(() -> {
+                byte[] content = revision.loadContent();
+                if (content == null) {
+                    throw new IllegalStateException("Revision " + revision.getRevisionNumber().asString() + " has no content");
+                }
+                return StringUtil.convertLineSeparators(new String(content, file.getCharset()));
+            }));
+        }
+        List<String> texts = new ArrayList<>();
+        for (Future<String> future : pending) {
+            texts.add(ExportWorkers.await(future, indicator));
+        }
+        return texts;
+    }
+
+    private List<ApngWriter.Frame> render(List<VcsFileRevision> revisions, List<String> texts, ExecutorService pool,
+                                          ProgressIndicator indicator) {
+        // one canvas for all revisions, frames of shorter revisions are filled with the editor background
+        indicator.setText("Measuring revisions");
+        int width = 0, height = 0;
+        long pixelWidth = 0, pixelHeight = 0;
+        for (String text : texts) {
+            indicator.checkCanceled();
+            Size size = withCapture(text, capture -> new Size(capture.width, capture.height, capture.getPixelWidth(), capture.getPixelHeight()));
+            width = Math.max(width, size.width());
+            height = Math.max(height, size.height());
+            pixelWidth = Math.max(pixelWidth, size.pixelWidth());
+            pixelHeight = Math.max(pixelHeight, size.pixelHeight());
+        }
+        // every worker holds its frame and the previous one
+        CapturePlan plan = CapturePlanner.planPages(pixelWidth, pixelHeight, ExportWorkers.COUNT + 1, state);
+        if (plan.isRejected()) {
+            throw new IllegalStateException(plan.describe());
+        }
+
+        indicator.setText("Rendering revisions");
+        indicator.setIndeterminate(false);
+        int canvasWidth = width, canvasHeight = height;
+        Semaphore slots = new Semaphore(ExportWorkers.COUNT);
+        List<Future<ApngWriter.Frame>> pending = new ArrayList<>();
+        BufferedImage previous = null;
+        for (int i = 0; i < texts.size(); i++) {
+            indicator.checkCanceled();
+            indicator.setFraction((double) i / texts.size());
+            indicator.setText2(revisions.get(i).getRevisionNumber().asString());
+            ExportWorkers.acquire(slots, indicator);
+            BufferedImage frame;
+            try {
+                frame = withCapture(texts.get(i), capture -> paint(capture, canvasWidth, canvasHeight));
+            } catch (RuntimeException e) {
+                slots.release();
+                throw e;
+            }
+            BufferedImage before = previous;
+            pending.add(pool.submit(() -> {
+                try {
+                    return encode(before, frame);
+                } finally {
+                    slots.release();
+                }
+            }));
+            previous = frame;
+        }
+        List<ApngWriter.Frame> frames = new ArrayList<>();
+        for (Future<ApngWriter.Frame> future : pending) {
+            frames.add(ExportWorkers.await(future, indicator));
+        }
+        return frames;
+    }
+
+    private record Size(int width, int height, long pixelWidth, long pixelHeight) {
+    }
+
+    /** Opens {@code text} as a revision of the file on the EDT, applies {@code action} to it and releases it again. */
+    private <T> T withCapture(String text, Function<EditorCapture, T> action) {
+        return ExportWorkers.onEdt(() -> {
+            try (EditorCapture capture = OffscreenRenderer.capture(getProject(), EditorFactory.getInstance().createDocument(text),
+                                                                   file.getFileType(), state)) {
+                return action.apply(capture);
+            }
+        });
+    }
+
+    /** Runs on the EDT: the revision on a canvas of {@code width} by {@code height}. */
+    private BufferedImage paint(EditorCapture capture, int width, int height) {
+        try (PhaseTimer paint = CaptureStats.start(CapturePhase.PAINT)) {
+            BufferedImage image = renderScale.createImage(width, height, 1, BufferedImage.TYPE_INT_RGB);
+            double paintScale = renderScale.paintScale(1);
+            Graphics2D graphics = image.createGraphics();
+            try {
+                graphics.setColor(capture.contentInfo.component.getBackground());
+                if (renderScale.isFixed()) {
+                    graphics.scale(paintScale, paintScale);
+                }
+                graphics.fillRect(0, 0, width, height);
+                capture.paint(graphics, 0, paintScale);
+            } finally {
+                graphics.dispose();
+            }
+            BufferedImage frame = renderScale.finish(image);
+            paint.image(frame);
+            return frame;
+        }
+    }
+
+    /** Runs on a worker: the part of {@code frame} that differs from {@code previous} as a standalone PNG. */
+    private ApngWriter.Frame encode(BufferedImage previous, BufferedImage frame) throws IOException {
+        try (PhaseTimer encode = CaptureStats.start(CapturePhase.ENCODE)) {
+            Raster raster = frame.getRaster();
+            Rectangle changed = previous == null
+                    ? new Rectangle(0, 0, raster.getWidth(), raster.getHeight())
+                    : changedBounds(pixels(previous), pixels(frame), raster.getWidth(), raster.getHeight());
+            BufferedImage crop = new BufferedImage(changed.width, changed.height, BufferedImage.TYPE_INT_RGB);
+            crop.getRaster().setRect(raster.createChild(changed.x, changed.y, changed.width, changed.height, 0, 0, null));
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            encoder.encode(crop, png);
+            encode.image(crop).bytes(png.size());
+            return new ApngWriter.Frame(changed.x, changed.y, png.toByteArray());
+        }
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /** The smallest rectangle around every pixel that differs, one pixel if nothing does, as frames cannot be empty. */
+    static Rectangle changedBounds(int[] before, int[] after, int width, int height) {
+        int top = 0;
+        while (top < height && Arrays.equals(before, top * width, (top + 1) * width, after, top * width, (top + 1) * width)) {
+            top++;
+        }
+        if (top == height) {
+            return new Rectangle(0, 0, 1, 1);
+        }
+        int bottom = height - 1;
+        while (Arrays.equals(before, bottom * width, (bottom + 1) * width, after, bottom * width, (bottom + 1) * width)) {
+            bottom--;
+        }
+        int left = width, right = -1;
+        for (int y = top; y <= bottom; y++) {
+            int row = y * width;
+            int x = 0;
+            while (x < left && before[row + x] == after[row + x]) {
+                x++;
+            }
+            left = Math.min(left, x);
+            x = width - 1;
+            while (x > right && before[row + x] == after[row + x]) {
+                x--;
+            }
+            right = Math.max(right, x);
+        }
+        return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+    }
+
+    @Override
+    public void onSuccess() {
+        if (output == null) {
+            return;
+        }
+        String report = String.format("%d revisions, %s in %.1f s", frameCount, StringUtil.formatFileSize(output.toFile().length()),
+                                      elapsedNanos / 1e9);
+        ScreenshotNotifier.notifyInfo(getProject(), false, true, output.toFile(), report);
+    }
+
+    @Override
+    public void onThrowable(@NotNull Throwable error) {
+        ScreenshotNotifier.notifyError(getProject(), "Failed to export the history of " + file.getName() + ": " + error.getMessage());
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.util.Arrays;
+
+/**
+ * Reduces an opaque image to {@code TYPE_BYTE_INDEXED}, a quarter of the memory of an int raster.
+ * <p>
+ * Code rarely uses more than 256 colors, those images get an exact palette. Anti-aliased text can exceed it,
+ * then the 256 most frequent 15-bit colors are kept and every pixel is mapped to the nearest one, without dithering
+ * so that flat backgrounds stay flat. Each kept color is the dominant exact color of its bucket, so backgrounds
+ * and plain text keep their exact values.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class ImageQuantizer {
+
+    private static final int MAX_COLORS = 256;
+
+    private static final int ROWS = 64;
+
+    private ImageQuantizer() {
+    }
+
+    /** The device pixels of {@code image} as an indexed image, alpha is ignored. */
+    static BufferedImage toIndexed(BufferedImage image) {
+        Raster raster = image.getRaster();
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int[] rows = new int[width * Math.min(ROWS, height)];
+
+        ExactPalette exact = new ExactPalette();
+        for (int y = 0; y < height && exact.size >= 0; y += ROWS) {
+            int h = Math.min(ROWS, height - y);
+            readRows(image, raster, y, h, rows);
+            exact.addAll(rows, width * h);
+        }
+
+        int[] palette;
+        Mapper mapper;
+        if (exact.size >= 0) {
+            palette = Arrays.copyOf(exact.colors, exact.size);
+            mapper = exact::indexOf;
+        } else {
+            PopularityPalette popular = new PopularityPalette();
+            for (int y = 0; y < height; y += ROWS) {
+                int h = Math.min(ROWS, height - y);
+                readRows(image, raster, y, h, rows);
+                popular.addAll(rows, width * h);
+            }
+            palette = popular.build();
+            mapper = popular::indexOf;
+        }
+
+        BufferedImage indexed = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel(palette));
+        byte[] indices = ((DataBufferByte) indexed.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < height; y += ROWS) {
+            int h = Math.min(ROWS, height - y);
+            readRows(image, raster, y, h, rows);
+            int offset = y * width;
+            for (int i = 0, n = width * h; i < n; i++) {
+                indices[offset + i] = (byte) mapper.indexOf(rows[i] & 0xFFFFFF);
+            }
+        }
+        return indexed;
+    }
+
+    private static void readRows(BufferedImage image, Raster raster, int y, int h, int[] rows) {
+        int width = raster.getWidth();
+        if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            raster.getDataElements(0, y, width, h, rows);
+        } else {
+            image.getRGB(0, y, width, h, rows, 0, width);
+        }
+    }
+
+    private static IndexColorModel colorModel(int[] palette) {
+        byte[] r = new byte[palette.length];
+        byte[] g = new byte[palette.length];
+        byte[] b = new byte[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            r[i] = (byte) (palette[i] >>> 16);
+            g[i] = (byte) (palette[i] >>> 8);
+            b[i] = (byte) palette[i];
+        }
+        return new IndexColorModel(8, palette.length, r, g, b);
+    }
+
+    @FunctionalInterface
+    private interface Mapper {
+        int indexOf(int rgb);
+    }
+
+    /** Open addressing set of up to {@link #MAX_COLORS} colors, {@code size} turns -1 once there are more. */
+    private static final class ExactPalette {
+
+        private static final int SLOTS = MAX_COLORS * 4;
+
+        /** {@code rgb + 1}, 0 marks a free slot. */
+        private final int[] keys = new int[SLOTS];
+
+        private final byte[] values = new byte[SLOTS];
+
+        final int[] colors = new int[MAX_COLORS];
+
+        int size;
+
+        private int lastRgb = -1, lastIndex;
+
+        void addAll(int[] pixels, int count) {
+            int previous = -1;
+            for (int i = 0; i < count; i++) {
+                int rgb = pixels[i] & 0xFFFFFF;
+                // runs of one color are the common case in code
+                if (rgb == previous) {
+                    continue;
+                }
+                int slot = slot(rgb);
+                if (keys[slot] == 0) {
+                    if (size == MAX_COLORS) {
+                        size = -1;
+                        return;
+                    }
+                    keys[slot] = rgb + 1;
+                    values[slot] = (byte) size;
+                    colors[size++] = rgb;
+                }
+                previous = rgb;
+            }
+        }
+
+        int indexOf(int rgb) {
+            if (rgb != lastRgb) {
+                lastRgb = rgb;
+                lastIndex = values[slot(rgb)] & 0xFF;
+            }
+            return lastIndex;
+        }
+
+        private int slot(int rgb) {
+            int slot = (rgb * 0x9E3779B1) >>> 22;
+            while (keys[slot] != 0 && keys[slot] != rgb + 1) {
+                slot = (slot + 1) & (SLOTS - 1);
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Histogram over 5-5-5 color buckets, each bucket maps to one palette entry through a lookup table.
+     * The exact color of a bucket is found with a majority vote, which needs no per color memory.
+     */
+    private static final class PopularityPalette {
+
+        private static final int BUCKETS = 1 << 15;
+
+        private final int[] counts = new int[BUCKETS];
+
+        private final int[] candidates = new int[BUCKETS];
+
+        private final int[] votes = new int[BUCKETS];
+
+        private final byte[] lookup = new byte[BUCKETS];
+
+        void addAll(int[] pixels, int count) {
+            for (int i = 0; i < count; i++) {
+                int rgb = pixels[i] & 0xFFFFFF;
+                int bucket = bucket(rgb);
+                counts[bucket]++;
+                if (votes[bucket] == 0) {
+                    candidates[bucket] = rgb;
+                    votes[bucket] = 1;
+                } else if (candidates[bucket] == rgb) {
+                    votes[bucket]++;
+                } else {
+                    votes[bucket]--;
+                }
+            }
+        }
+
+        /** Takes the most frequent buckets into the palette and fills the lookup table. */
+        int[] build() {
+            Integer[] order = new Integer[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(counts[b], counts[a]));
+
+            int[] palette = new int[MAX_COLORS];
+            int size = 0;
+            while (size < MAX_COLORS && counts[order[size]] > 0) {
+                palette[size] = candidates[order[size]];
+                size++;
+            }
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                if (counts[bucket] > 0) {
+                    lookup[bucket] = (byte) nearest(palette, size, bucket);
+                }
+            }
+            return Arrays.copyOf(palette, size);
+        }
+
+        int indexOf(int rgb) {
+            return lookup[bucket(rgb)] & 0xFF;
+        }
+
+        private int nearest(int[] palette, int size, int bucket) {
+            int r = (candidates[bucket] >>> 16) & 0xFF;
+            int g = (candidates[bucket] >>> 8) & 0xFF;
+            int b = candidates[bucket] & 0xFF;
+            int best = 0, bestDistance = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                int dr = r - ((palette[i] >>> 16) & 0xFF);
+                int dg = g - ((palette[i] >>> 8) & 0xFF);
+                int db = b - (palette[i] & 0xFF);
+                // weighted roughly by how sensitive the eye is to each channel
+                int distance = 3 * dr * dr + 4 * dg * dg + 2 * db * db;
+                if (distance < bestDistance) {
+                    best = i;
+                    bestDistance = distance;
+                }
+            }
+            return best;
+        }
+
+        private static int bucket(int rgb) {
+            return (rgb >>> 9) & 0x7C00 | (rgb >>> 6) & 0x03E0 | (rgb >>> 3) & 0x001F;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.EditorKind;
+import com.intellij.openapi.editor.ex.EditorEx;
+import com.intellij.openapi.editor.highlighter.EditorHighlighter;
+import com.intellij.openapi.editor.highlighter.EditorHighlighterFactory;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+import plus.wcj.jetbrains.plugins.screenshot.encode.PngImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.export.DedupeMode;
+import plus.wcj.jetbrains.plugins.screenshot.export.DedupeStore;
+import plus.wcj.jetbrains.plugins.screenshot.export.ScreenshotExporter;
+import plus.wcj.jetbrains.plugins.screenshot.export.StreamedImage;
+import plus.wcj.jetbrains.plugins.screenshot.png.PngEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CapturePhase;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CaptureStats;
+import plus.wcj.jetbrains.plugins.screenshot.stats.PhaseTimer;
+
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Captures files and documents through a viewer editor of their own that is never added to a window,
+ * so captures do not need an open tab and never touch the editors of the user.
+ * <p>
+ * Must be called on the EDT. Every capture owns its editor and releases it on {@link EditorCapture#close()},
+ * any number of captures may be open at the same time.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class OffscreenRenderer {
+
+    private OffscreenRenderer() {
+    }
+
+    /**
+     * Captures {@code file} into one image, or prepares a capture too large for one to be streamed to disk
+     * with {@link Rendering#writePages}. Only a capture that fits neither way is rejected.
+     */
+    static Rendering render(@Nullable Project project, @NotNull VirtualFile file, @NotNull ScreenshotState state) {
+        PhaseTimer measure = CaptureStats.start(CapturePhase.MEASURE);
+        EditorCapture capture = null;
+        try (measure) {
+            capture = capture(project, file, state);
+            measure.close();
+            CapturePlan plan = CapturePlanner.plan(capture.getPixelWidth(), capture.getPixelHeight(), capture.getBandPixelHeight(), 1, state);
+            if (plan.isRejected()) {
+                throw new IllegalStateException(plan.describe());
+            }
+            if (plan.strategy() == CaptureStrategy.STREAMED || plan.strategy() == CaptureStrategy.PAGINATED) {
+                capture.allocateBands();
+                List<StreamedImage> pages = plan.strategy() == CaptureStrategy.PAGINATED ? capture.pages(plan.bandsPerPage()) : List.of(capture);
+                capture = null;
+                return new Rendering(null, pages, plan);
+            }
+            try (PhaseTimer paint = CaptureStats.start(CapturePhase.PAINT)) {
+                BufferedImage image = capture.paint(plan.scale());
+                paint.image(image);
+                return new Rendering(image, List.of(), plan);
+            }
+        } finally {
+            if (capture != null) {
+                capture.close();
+            }
+        }
+    }
+
+    static EditorCapture capture(@Nullable Project project, @NotNull VirtualFile file, @NotNull ScreenshotState state) {
+        Document document = FileDocumentManager.getInstance().getDocument(file);
+        if (document == null) {
+            throw new IllegalStateException(file.getName() + " is binary or too large");
+        }
+        return capture(project, document, EditorHighlighterFactory.getInstance().createEditorHighlighter(project, file), state);
+    }
+
+    static EditorCapture capture(@Nullable Project project, @NotNull Document document, @NotNull FileType fileType,
+                                 @NotNull ScreenshotState state) {
+        return capture(project, document, EditorHighlighterFactory.getInstance().createEditorHighlighter(project, fileType), state);
+    }
+
+    private static EditorCapture capture(@Nullable Project project, Document document, EditorHighlighter highlighter,
+                                         ScreenshotState state) {
+        EditorFactory editorFactory = EditorFactory.getInstance();
+        EditorEx editor = (EditorEx) editorFactory.createViewer(document, project, EditorKind.PREVIEW);
+        try {
+            editor.setHighlighter(highlighter);
+            editor.getSettings().setUseSoftWraps(false);
+            layOut(editor);
+        } catch (RuntimeException e) {
+            editorFactory.releaseEditor(editor);
+            throw e;
+        }
+        // from here on the capture owns the editor, it also releases it when it fails to measure
+        return new EditorCapture(editor, state, project, () -> editorFactory.releaseEditor(editor));
+    }
+
+    /**
+     * A rendered file, either one {@link #image} or {@link #pages} to stream band by band.
+     *
+     * @param plan how the capture fits into memory, e.g. to tell that it was downscaled
+     */
+    record Rendering(@Nullable BufferedImage image, List<StreamedImage> pages, CapturePlan plan) {
+
+        /**
+         * Streams the pages as PNG into {@code <baseName>.png}, or {@code <baseName>_p01.png} and so on, then closes them on the EDT.
+         * Call on a worker. Pages identical to an earlier capture are handled by {@link ScreenshotState#dedupeMode}.
+         *
+         * @return the bytes written
+         */
+        long writePages(Path dir, String baseName, ScreenshotState state, ProgressIndicator indicator) throws IOException {
+            try {
+                PngEncoder encoder = new PngEncoder(state.pngCompressionLevel, state.pngFilter);
+                long bytes = 0;
+                for (int p = 0; p < pages.size(); p++) {
+                    String name = pages.size() == 1 ? baseName : String.format("%s_p%02d", baseName, p + 1);
+                    MessageDigest digest = state.dedupeMode != DedupeMode.OFF ? DedupeStore.newDigest(PngImageEncoder.ID) : null;
+                    ScreenshotExporter.StreamedFile streamed = ScreenshotExporter.writeStreamed(dir, name, pages.get(p), encoder, digest, indicator, band -> {
+                    });
+                    if (digest != null) {
+                        DedupeStore.replaceDuplicate(streamed.file(), DedupeStore.hex(digest), state.dedupeMode, name, "png");
+                    }
+                    bytes += streamed.bytes();
+                }
+                return bytes;
+            } finally {
+                ApplicationManager.getApplication().invokeAndWait(() -> pages.forEach(StreamedImage::close));
+            }
+        }
+
+        /** What the user should know about how the file was saved, empty if it was saved as it is. */
+        String describe() {
+            return switch (plan.strategy()) {
+                case DOWNSCALED -> String.format("downscaled to %d%%", Math.round(plan.scale() * 100));
+                case STREAMED -> "too large for one image, streamed to PNG";
+                case PAGINATED -> String.format("too large for one image, streamed to %d PNG pages", pages.size());
+                default -> "";
+            };
+        }
+    }
+
+    /** Gives the components the size a window would lay them out with, {@link JComponent#paint} skips empty components. */
+    static void layOut(EditorEx editor) {
+        JComponent contentComponent = editor.getContentComponent();
+        contentComponent.setSize(contentComponent.getPreferredSize());
+        JComponent gutterComponent = editor.getGutterComponentEx();
+        gutterComponent.setSize(gutterComponent.getPreferredSize().width, contentComponent.getHeight());
+    }
+}
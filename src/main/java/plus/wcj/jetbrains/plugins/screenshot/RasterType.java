@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Pixel layout of a captured image. Code is opaque, so the alpha channel of {@link #ARGB} is mostly wasted.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public enum RasterType {
+
+    ARGB("32-bit ARGB", BufferedImage.TYPE_INT_ARGB),
+
+    /** Opaque, encoded without an alpha channel. */
+    RGB("24-bit RGB", BufferedImage.TYPE_INT_RGB),
+
+    /**
+     * Painted as {@link #RGB}, then reduced to an 8-bit palette, see {@link ImageQuantizer}.
+     * Streamed captures stay {@link #RGB}, a PNG palette must be known before the first band.
+     */
+    INDEXED("8-bit indexed", BufferedImage.TYPE_INT_RGB);
+
+    public final String description;
+
+    /** {@link BufferedImage} type that is painted into. */
+    final int paintType;
+
+    RasterType(String description, int paintType) {
+        this.description = description;
+        this.paintType = paintType;
+    }
+
+    /** Converts a freshly painted image of {@link #paintType} into its final layout. */
+    BufferedImage finish(BufferedImage image) {
+        return this == INDEXED ? ImageQuantizer.toIndexed(image) : image;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.ui.scale.JBUIScale;
+import com.intellij.util.ui.ImageUtil;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Device pixels per user space pixel of a capture. Unless {@link ScreenshotState#fixedOutputScale} is set this is the
+ * HiDPI scale of the monitor the editor is on, so the same code gives different image sizes on different machines.
+ * <p>
+ * A fixed scale paints into a plain {@link BufferedImage} through the transform of {@link ComponentInfo#paint},
+ * optionally {@link #SUPERSAMPLE} times larger and then averaged down by {@link Downsampler}.
+ *
+ * @param output      fixed output scale, {@code 0} to follow the display
+ * @param supersample factor the image is painted larger than it is saved, {@code 1} for none
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+record RenderScale(double output, int supersample) {
+
+    static final int SUPERSAMPLE = 2;
+
+    static RenderScale of(ScreenshotState state) {
+        if (!state.fixedOutputScale) {
+            return new RenderScale(0, 1);
+        }
+        return new RenderScale(state.outputScale, state.highQualityDownsample ? SUPERSAMPLE : 1);
+    }
+
+    boolean isFixed() {
+        return output > 0;
+    }
+
+    /** Device pixels per user space pixel of the saved image. */
+    double deviceScale(Component component) {
+        return isFixed() ? output : JBUIScale.sysScale(component);
+    }
+
+    /**
+     * The image to paint a {@code width x height} user space capture into, {@code scale} below 1 downscales it further.
+     * Paint with {@link #paintScale(double)} and pass the result through {@link #finish(BufferedImage)}.
+     */
+    BufferedImage createImage(int width, int height, double scale, int type) {
+        if (!isFixed()) {
+            return ImageUtil.createImage((int) Math.ceil(width * scale), (int) Math.ceil(height * scale), type);
+        }
+        // whole output pixels times the supersample factor, so averaging down is exact
+        int outputWidth = (int) Math.ceil(width * scale * output);
+        int outputHeight = (int) Math.ceil(height * scale * output);
+        return new BufferedImage(outputWidth * supersample, outputHeight * supersample, type);
+    }
+
+    /** The {@link ComponentInfo#paint} scale for an image from {@link #createImage}. */
+    double paintScale(double scale) {
+        return isFixed() ? scale * output * supersample : scale;
+    }
+
+    BufferedImage finish(BufferedImage image) {
+        return supersample > 1 ? Downsampler.downsample(image, supersample) : image;
+    }
+}
@@ -25,53 +25,40 @@ import com.intellij.diff.tools.util.FoldingModelSupport;
 import com.intellij.diff.tools.util.side.TwosideTextDiffViewer;
 import com.intellij.diff.util.DiffDividerDrawUtil;
 import com.intellij.diff.util.DiffDrawUtil;
-import com.intellij.ide.actions.RevealFileAction;
-import com.intellij.notification.Notification;
-import com.intellij.notification.NotificationAction;
-import com.intellij.notification.NotificationGroupManager;
-import com.intellij.notification.NotificationType;
 import com.intellij.openapi.actionSystem.ActionUpdateThread;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.actionSystem.PlatformDataKeys;
 import com.intellij.openapi.actionSystem.Presentation;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ApplicationNamesInfo;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.EditorKind;
 import com.intellij.openapi.editor.ex.EditorEx;
-import com.intellij.openapi.editor.ex.EditorGutterComponentEx;
 import com.intellij.openapi.editor.impl.EditorImpl;
-import com.intellij.openapi.fileEditor.FileEditorManager;
-import com.intellij.openapi.options.ShowSettingsUtil;
 import com.intellij.openapi.project.DumbAwareAction;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.ui.Splitter;
-import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
-import com.intellij.util.ui.ImageUtil;
 import com.intellij.util.ui.UIUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
 import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotStateProvider;
+import plus.wcj.jetbrains.plugins.screenshot.encode.ImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.encode.VectorImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.export.ExportWorkers;
+import plus.wcj.jetbrains.plugins.screenshot.export.ScreenshotExporter;
+import plus.wcj.jetbrains.plugins.screenshot.export.StreamedImage;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CapturePhase;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CaptureStats;
+import plus.wcj.jetbrains.plugins.screenshot.stats.PhaseTimer;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
-import java.awt.datatransfer.DataFlavor;
-import java.awt.datatransfer.Transferable;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 /**
  * @author ChangJin Wei (魏昌进)
@@ -80,31 +67,23 @@ public class ScreenshotAction extends DumbAwareAction {
 
     public static final String ID = "Screenshot Pro";
 
+    private static final boolean ANDROID_STUDIO = "Android Studio".equals(ApplicationNamesInfo.getInstance().getFullProductName());
+
     @Override
     public @NotNull ActionUpdateThread getActionUpdateThread() {
-        return ActionUpdateThread.EDT;
+        return ActionUpdateThread.BGT;
     }
 
     @Override
     public void update(@NotNull AnActionEvent e) {
-        ScreenshotState state = ScreenshotStateProvider.getInstance().getState();
-
         Presentation presentation = e.getPresentation();
-
-        if (!(state.clipboard || state.save)) {
-            presentation.setEnabled(false);
-            Project project = e.getProject();
-            NotificationGroupManager.getInstance()
-                                    .getNotificationGroup(ID)
-                                    .createNotification(ID, "Please enable Clipboard or set an Output directory in Settings.", NotificationType.INFORMATION)
-                                    .addAction(NotificationAction.createSimpleExpiring("Open in Settings", () -> ShowSettingsUtil.getInstance().showSettingsDialog(project, ID)))
-                                    .notify(project);
-            return;
-        }
         presentation.setEnabled(true);
+        // the balloon is shown once per session, the description keeps telling why a capture goes nowhere
+        presentation.setDescription(ScreenshotStateProvider.getInstance().hasOutput()
+                                    ? getTemplatePresentation().getDescription() : ScreenshotNotifier.NO_OUTPUT);
         Editor editor = e.getData(CommonDataKeys.EDITOR);
         if (editor == null) {
-            if ("Android Studio".equals(ApplicationNamesInfo.getInstance().getFullProductName())) {
+            if (ANDROID_STUDIO) {
                 ToolWindow tw = e.getData(PlatformDataKeys.TOOL_WINDOW);
                 if (tw != null && "Running Devices".equalsIgnoreCase(tw.getId())) {
                     presentation.setEnabled(false);
@@ -125,17 +104,21 @@ public class ScreenshotAction extends DumbAwareAction {
 
     @Override
     public void actionPerformed(AnActionEvent e) {
-        ScreenshotState state = ScreenshotStateProvider.getInstance().getState();
+        ScreenshotState state = ScreenshotStateProvider.getInstance().snapshot();
 
         Project project = e.getProject();
+        if (!(state.clipboard || state.save)) {
+            ScreenshotNotifier.notifyNoOutput(project);
+            return;
+        }
         Editor editor = e.getData(CommonDataKeys.EDITOR);
         if (editor == null) {
-            notifyError(project, "Screenshotting code is only available in an editor");
+            ScreenshotNotifier.notifyError(project, "Screenshotting code is only available in an editor");
             return;
         }
         if (editor.getEditorKind() == EditorKind.DIFF && !editor.getSelectionModel().hasSelection()) {
             FrameDiffTool.DiffViewer viewer = e.getData(DiffDataKeys.DIFF_VIEWER);
-            if (viewer instanceof TwosideTextDiffViewer twosideTextDiffViewer) {
+            if (viewer instanceof TwosideTextDiffViewer twosideTextDiffViewer && ScreenshotUtil.isDiffCaptureSupported(twosideTextDiffViewer)) {
                 screenshot(twosideTextDiffViewer, editor, state, project);
                 return;
             }
@@ -144,274 +127,255 @@ public class ScreenshotAction extends DumbAwareAction {
     }
 
     private void screenshot(TwosideTextDiffViewer twosideTextDiffViewer, Editor editor, ScreenshotState state, Project project) {
-        try {
-            Color background = editor.getContentComponent().getBackground();
-
-            BufferedImage leftEditor = toBufferedImage(twosideTextDiffViewer.getEditor1(), state, project);
-            BufferedImage rightEditor = toBufferedImage(twosideTextDiffViewer.getEditor2(), state, project);
-            BufferedImage splitter = toBufferedImage(twosideTextDiffViewer, leftEditor, rightEditor);
-            BufferedImage image = imageMerge(background, leftEditor, splitter, rightEditor);
+        // measuring reads the editor layout, which the platform only allows on the EDT, so the sides are measured in turn
+        // a capture that fails to measure is not timed
+        PhaseTimer measure = CaptureStats.start(CapturePhase.MEASURE);
+        try (EditorCapture left = new EditorCapture(twosideTextDiffViewer.getEditor1(), state, project);
+             EditorCapture right = new EditorCapture(twosideTextDiffViewer.getEditor2(), state, project)) {
+            DiffHunkLayout hunks = diffHunks(twosideTextDiffViewer, editor, left, right, state);
+            int dividerWidth = dividerWidth(twosideTextDiffViewer);
+            // the sides and the divider are painted straight into their regions of one image
+            CapturePlan plan = CapturePlanner.plan(left.getPixelWidth() + left.toPixels(dividerWidth) + right.getPixelWidth(),
+                                                   hunks != null ? left.toPixels(hunks.height) : Math.max(left.getPixelHeight(), right.getPixelHeight()),
+                                                   0, 1, state);
+            measure.close();
+            int width = left.width + dividerWidth + right.width;
+            int height = hunks != null ? hunks.height : Math.max(left.height, right.height);
+
+            VectorImageEncoder vector = vectorEncoder(state);
+            VectorImageEncoder.Recording recording = null;
+            if (vector != null) {
+                recording = vector.record(width, height);
+                try (PhaseTimer paint = CaptureStats.start(CapturePhase.PAINT)) {
+                    Graphics2D graphics = recording.getGraphics();
+                    paintDiffBackground(graphics, twosideTextDiffViewer, editor, left, right, dividerWidth, height, hunks);
+                    paintSides(graphics, left, right, dividerWidth, hunks, 1);
+                    paint.size(width, height);
+                }
+                if (!state.clipboard || !plan.isSingleImage()) {
+                    ScreenshotExporter.export(project, null, recording, state, fileName(editor), vectorDetail(state));
+                    return;
+                }
+            }
+            if (plan.isRejected()) {
+                ScreenshotNotifier.notifyError(project, plan.describe());
+                return;
+            }
 
-            copyToClipboard(image, state);
-            File file = saveImageToDisk(image, state, editor);
-            notifyInfo(project, state, file);
+            // the clipboard always gets pixels, also when the file is a vector format
+            BufferedImage image = paintDiff(twosideTextDiffViewer, editor, left, right, dividerWidth, hunks, plan.scale(), state);
+            if (recording != null) {
+                ScreenshotExporter.export(project, image, recording, state, fileName(editor), "");
+            } else {
+                ScreenshotExporter.export(project, image, state, fileName(editor), plan.describe());
+            }
         } catch (Exception e) {
             Messages.showErrorDialog("Failed to capture screenshot: " + e.getMessage(), "Error");
         }
     }
 
     private void screenshot(Editor editor, ScreenshotState state, Project project) {
+        EditorCapture capture = null;
         try {
-            BufferedImage image = toBufferedImage(editor, state, project);
-            copyToClipboard(image, state);
-            File file = saveImageToDisk(image, state, editor);
-            notifyInfo(project, state, file);
+            try (PhaseTimer ignored = CaptureStats.start(CapturePhase.MEASURE)) {
+                capture = new EditorCapture(editor, state, project);
+            }
+            CapturePlan plan = CapturePlanner.plan(capture.getPixelWidth(), capture.getPixelHeight(), capture.getBandPixelHeight(), 1, state);
+            VectorImageEncoder vector = vectorEncoder(state);
+            if (vector != null) {
+                VectorImageEncoder.Recording recording = vector.record(capture.width, capture.height);
+                try (PhaseTimer paint = CaptureStats.start(CapturePhase.PAINT)) {
+                    capture.paint(recording.getGraphics(), 0);
+                    paint.size(capture.width, capture.height);
+                }
+                // the clipboard still gets pixels if they fit into one image
+                BufferedImage image = null;
+                if (state.clipboard && plan.isSingleImage()) {
+                    try (PhaseTimer paint = CaptureStats.start(CapturePhase.PAINT)) {
+                        image = capture.paint(plan.scale());
+                        paint.image(image);
+                    }
+                }
+                capture.close();
+                capture = null;
+                ScreenshotExporter.export(project, image, recording, state, fileName(editor), image == null ? vectorDetail(state) : "");
+                return;
+            }
+            // a visible area is one screen, it is never split into pages
+            if (state.save && state.linesPerPage > 0 && !state.visibleAreaOnly) {
+                EditorCapture.LinePages pages = capture.linePages(state.linesPerPage);
+                if (pages.getPageCount() > 1) {
+                    CapturePlan pagePlan = CapturePlanner.planPages(capture.getPixelWidth(), pages.getMaxPagePixelHeight(), ExportWorkers.COUNT, state);
+                    if (pagePlan.isRejected()) {
+                        capture.close();
+                        capture = null;
+                        ScreenshotNotifier.notifyError(project, pagePlan.describe());
+                        return;
+                    }
+                    capture = null;
+                    String detail = String.format("Split into %d pages of %d lines.", pages.getPageCount(), state.linesPerPage);
+                    ScreenshotExporter.export(project, pages, state, fileName(editor), state.clipboard ? detail + " Only saved." : detail);
+                    return;
+                }
+            }
+            if (plan.isRejected()) {
+                capture.close();
+                capture = null;
+                ScreenshotNotifier.notifyError(project, plan.describe());
+                return;
+            }
+            if (plan.strategy() == CaptureStrategy.STREAMED || plan.strategy() == CaptureStrategy.PAGINATED) {
+                capture.allocateBands();
+                List<StreamedImage> pages = plan.strategy() == CaptureStrategy.PAGINATED ? capture.pages(plan.bandsPerPage()) : List.of(capture);
+                capture = null;
+                ScreenshotExporter.export(project, pages, state, fileName(editor), plan.describe());
+                return;
+            }
+            BufferedImage image;
+            try (PhaseTimer paint = CaptureStats.start(CapturePhase.PAINT)) {
+                image = capture.paint(plan.scale());
+                paint.image(image);
+            }
+            capture.close();
+            capture = null;
+            ScreenshotExporter.export(project, image, state, fileName(editor), plan.describe());
         } catch (Exception e) {
+            if (capture != null) {
+                capture.close();
+            }
             Messages.showErrorDialog("Failed to capture screenshot: " + e.getMessage(), "Error");
         }
     }
 
-    private BufferedImage toBufferedImage(TwosideTextDiffViewer twosideTextDiffViewer, BufferedImage leftEditor, BufferedImage rightEditor) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, InterruptedException {
-        Splitter splitter = UIUtil.findComponentOfType(twosideTextDiffViewer.getComponent(), Splitter.class);
-
-        int maxHeight = Math.max(leftEditor.getHeight(), rightEditor.getHeight());
-        int maxWidth = Math.max(leftEditor.getWidth(), rightEditor.getWidth());
-
-        /** {@link SimpleDiffViewer.MyDividerPainter#paint(Graphics, JComponent)} */
-        BufferedImage image = ImageUtil.createImage(splitter.getDividerWidth(), maxHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D gg = image.createGraphics();
-        gg.setClip(new Rectangle(0, 0, splitter.getDividerWidth(), maxHeight));
-        gg.setColor(DiffDrawUtil.getDividerColor(twosideTextDiffViewer.getEditor1()));
-        gg.fill(new Rectangle(0, 0, splitter.getDividerWidth(), maxHeight));
-
-        /** {@link SimpleDiffModel#paintPolygons(Graphics2D, JComponent)} */
+    /** Unchanged code between the hunks collapses into a separator, {@code null} if the whole files are captured. */
+    static @Nullable DiffHunkLayout diffHunks(TwosideTextDiffViewer twosideTextDiffViewer, Editor editor, EditorCapture left, EditorCapture right,
+                                              ScreenshotState state) {
+        if (!state.diffHunksOnly || state.visibleAreaOnly) {
+            return null;
+        }
         SimpleDiffModel myModel = ScreenshotUtil.getField(twosideTextDiffViewer, "myModel");
-        ScreenshotUtil.ScreenshotPaintable paintable = new ScreenshotUtil.ScreenshotPaintable(myModel.getChanges(), ScreenshotUtil.myViewer_needAlignChanges(myModel));
-        EditorEx editor1 = ScreenshotUtil.getEditor(twosideTextDiffViewer.getEditor1(), maxHeight, maxWidth);
-        EditorEx editor2 = ScreenshotUtil.getEditor(twosideTextDiffViewer.getEditor2(), maxHeight, maxWidth);
-        DiffDividerDrawUtil.paintPolygons(gg, splitter.getDividerWidth(), editor1, editor2, paintable);
-
-        /** {@link SimpleDiffViewer.MyFoldingModel#paintOnDivider(Graphics2D, Component)} */
-        /** {@link FoldingModelSupport.MyPaintable#paintOnDivider(Graphics2D, Component)} */
-        FoldingModelSupport myFoldingModel = ScreenshotUtil.getField(twosideTextDiffViewer, "myFoldingModel");
-        DiffDividerDrawUtil.DividerSeparatorPaintable myPaintable = ScreenshotUtil.getField(myFoldingModel, "myPaintable");
-        DiffDividerDrawUtil.paintSeparators(gg, splitter.getDividerWidth(), editor1, editor2, myPaintable);
-
-        gg.dispose();
-        return image;
+        return DiffHunkLayout.of(myModel.getChanges(), left, right, state.diffContextLines, editor.getLineHeight() / 2);
     }
 
-    private BufferedImage toBufferedImage(Editor editor, ScreenshotState state, Project project) {
-        try (CaretVisibilityGuard ignored = new CaretVisibilityGuard(editor)) {
-            JComponent contentComponent = editor.getContentComponent();
-            EditorGutterComponentEx gutterComponent = (EditorGutterComponentEx) editor.getGutter();
-
-            ComponentInfo contentInfo = new ComponentInfo(editor, contentComponent, state, project);
-            ComponentInfo gutterInfo = new ComponentInfo(gutterComponent, contentInfo, state);
-
-            contentInfo.translateXY(contentComponent, contentInfo, gutterInfo);
-            gutterInfo.translateXY(gutterComponent, contentInfo, gutterInfo);
-
-            int imageWidth = gutterInfo.width + contentInfo.width;
-            int imageHeight = Math.max(gutterInfo.height, contentInfo.height);
-
-            BufferedImage image = ImageUtil.createImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D graphics = image.createGraphics();
-            try {
-                contentInfo.paint(graphics);
-                gutterInfo.paint(graphics);
-            } finally {
-                if (contentInfo.hasSelection) {
-                    editor.getSelectionModel().setSelection(contentInfo.selectionStart, contentInfo.selectionEnd);
-                }
-                graphics.dispose();
-            }
-            return image;
-        }
+    static int dividerWidth(TwosideTextDiffViewer twosideTextDiffViewer) {
+        return UIUtil.findComponentOfType(twosideTextDiffViewer.getComponent(), Splitter.class).getDividerWidth();
     }
 
-    private BufferedImage imageMerge(Color background, BufferedImage... images) {
-        int imageWidth = 0;
-        int imageHeight = 0;
-        for (BufferedImage image : images) {
-            imageWidth += image.getWidth();
-            imageHeight = Math.max(imageHeight, image.getHeight());
-        }
-        BufferedImage imageMerge = ImageUtil.createImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D graphics = imageMerge.createGraphics();
+    /**
+     * Paints both sides and the divider straight into their regions of one image of the configured raster type and scale,
+     * {@code scale} below 1 gives a downscaled image as {@link CaptureStrategy#DOWNSCALED} plans it.
+     */
+    static BufferedImage paintDiff(TwosideTextDiffViewer twosideTextDiffViewer, Editor editor, EditorCapture left, EditorCapture right,
+                                   int dividerWidth, @Nullable DiffHunkLayout hunks, double scale, ScreenshotState state) {
+        int width = left.width + dividerWidth + right.width;
+        int height = hunks != null ? hunks.height : Math.max(left.height, right.height);
+        RenderScale renderScale = RenderScale.of(state);
+        BufferedImage image = renderScale.createImage(width, height, scale, state.rasterType.paintType);
+        double paintScale = renderScale.paintScale(scale);
+        Graphics2D graphics = image.createGraphics();
         try {
-            graphics.setColor(background);
-            graphics.fillRect(0, 0, imageWidth, imageHeight);
-
-            int x = 0;
-            for (BufferedImage image : images) {
-                graphics.drawImage(image, x, 0, null);
-                x += image.getWidth();
+            try (PhaseTimer merge = CaptureStats.start(CapturePhase.MERGE)) {
+                // the sides set their own transform, the background and the divider are painted through this one
+                if (paintScale != 1) {
+                    graphics.scale(paintScale, paintScale);
+                }
+                paintDiffBackground(graphics, twosideTextDiffViewer, editor, left, right, dividerWidth, height, hunks);
+                merge.image(image);
+            }
+            try (PhaseTimer paint = CaptureStats.start(CapturePhase.PAINT)) {
+                paintSides(graphics, left, right, dividerWidth, hunks, paintScale);
+                paint.image(image);
             }
         } finally {
             graphics.dispose();
         }
-        return imageMerge;
-    }
-
-
-    private File saveImageToDisk(BufferedImage image, ScreenshotState state, Editor editor) throws IOException {
-        if (!state.save) {
-            return null;
+        try (PhaseTimer merge = CaptureStats.start(CapturePhase.MERGE)) {
+            image = state.rasterType.finish(renderScale.finish(image));
+            merge.image(image);
         }
-        VirtualFile virtualFile = ((EditorImpl) editor).getVirtualFile();
-        String fileName = virtualFile != null ? virtualFile.getName() : "screenshot";
-
-        Path dir = Paths.get(state.outputDir);
-        Files.createDirectories(dir);
-        String ts = DateTimeFormatter.ofPattern("yyyyMMddHHmmss").format(LocalDateTime.now());
-        Path out = dir.resolve(String.format("%s_%s.png", fileName, ts));
-        File file = out.toFile();
-        ImageIO.write(image, "PNG", file);
-        return file;
+        return image;
     }
 
-    private void copyToClipboard(BufferedImage image, ScreenshotState state) {
-        if (!state.clipboard) {
+    /**
+     * The editor background behind both sides and the divider between them.
+     * Collapsed to {@code hunks}, every hunk gets its own divider and the hunks are parted by a strip in the divider colour.
+     */
+    private static void paintDiffBackground(Graphics2D graphics, TwosideTextDiffViewer twosideTextDiffViewer, Editor editor,
+                                     EditorCapture left, EditorCapture right, int dividerWidth, int height, @Nullable DiffHunkLayout hunks) {
+        int width = left.width + dividerWidth + right.width;
+        int maxWidth = Math.max(left.width, right.width);
+        graphics.setColor(editor.getContentComponent().getBackground());
+        graphics.fillRect(0, 0, width, height);
+        if (hunks == null) {
+            paintDivider(graphics, twosideTextDiffViewer, left.width, 0, dividerWidth, maxWidth, height, left.getTop(), right.getTop());
             return;
         }
-        Toolkit.getDefaultToolkit()
-               .getSystemClipboard()
-               .setContents(new Transferable() {
-                   @Override
-                   public DataFlavor[] getTransferDataFlavors() {
-                       return new DataFlavor[]{DataFlavor.imageFlavor};
-                   }
-
-                   @Override
-                   public boolean isDataFlavorSupported(DataFlavor flavor) {
-                       return flavor == DataFlavor.imageFlavor;
-                   }
-
-                   @NotNull
-                   @Override
-                   public Object getTransferData(DataFlavor flavor) {
-                       return image;
-                   }
-               }, null);
+        for (DiffHunkLayout.Hunk hunk : hunks.hunks) {
+            if (hunk.y() > 0) {
+                graphics.setColor(DiffDrawUtil.getDividerColor(twosideTextDiffViewer.getEditor1()));
+                graphics.fillRect(0, hunk.y() - hunks.separatorHeight, width, hunks.separatorHeight);
+            }
+            paintDivider(graphics, twosideTextDiffViewer, left.width, hunk.y(), dividerWidth, maxWidth, hunk.height(), hunk.leftTop(), hunk.rightTop());
+        }
     }
 
-
-    private void notifyInfo(Project project, ScreenshotState state, File file) {
-        String content = "Please enable Clipboard or set an Output directory in Settings.";
-        Notification n = NotificationGroupManager.getInstance()
-                                                 .getNotificationGroup(ID)
-                                                 .createNotification(ID, content, NotificationType.INFORMATION);
-
-        if (state.save && file != null && file.exists()) {
-            content = "Saved to: \n" + file.getName();
-            n.addAction(NotificationAction.createSimpleExpiring("Open in Folder", () -> RevealFileAction.openFile(file)));
-            n.addAction(NotificationAction.createSimpleExpiring("Open in Editor", () -> openImageInEditor(project, file)));
+    /** Both sides of the diff, either whole or only the rows of the {@code hunks}. */
+    private static void paintSides(Graphics2D graphics, EditorCapture left, EditorCapture right, int dividerWidth,
+                            @Nullable DiffHunkLayout hunks, double scale) {
+        if (hunks == null) {
+            left.paint(graphics, 0, scale);
+            right.paint(graphics, left.width + dividerWidth, scale);
+            return;
         }
-
-        if (state.clipboard && state.save) {
-            content = "Copied to clipboard and saved to:";
-        } else if (state.clipboard) {
-            content = "Copied to clipboard.";
+        for (DiffHunkLayout.Hunk hunk : hunks.hunks) {
+            left.paintRows(graphics, 0, hunk.leftTop(), hunk.leftHeight(), hunk.y(), scale);
+            right.paintRows(graphics, left.width + dividerWidth, hunk.rightTop(), hunk.rightHeight(), hunk.y(), scale);
         }
-
-        n.setContent(content);
-        n.notify(project);
     }
 
-    private static void openImageInEditor(Project project, File file) {
-        if (project == null || file == null) {
-            return;
+    /**
+     * Paints the divider into {@code x .. x + dividerWidth} and {@code y .. y + height} of the diff image, {@code maxWidth} is the wider side.
+     * The polygons are laid out as if the left editor was scrolled to {@code leftTop} and the right one to {@code rightTop}.
+     */
+    private static void paintDivider(Graphics2D graphics, TwosideTextDiffViewer twosideTextDiffViewer, int x, int y, int dividerWidth, int maxWidth, int height,
+                              int leftTop, int rightTop) {
+        /** {@link SimpleDiffViewer.MyDividerPainter#paint(Graphics, JComponent)} */
+        Graphics2D gg = (Graphics2D) graphics.create();
+        try {
+            gg.translate(x, y);
+            gg.setClip(new Rectangle(0, 0, dividerWidth, height));
+            gg.setColor(DiffDrawUtil.getDividerColor(twosideTextDiffViewer.getEditor1()));
+            gg.fill(new Rectangle(0, 0, dividerWidth, height));
+
+            /** {@link SimpleDiffModel#paintPolygons(Graphics2D, JComponent)} */
+            SimpleDiffModel myModel = ScreenshotUtil.getField(twosideTextDiffViewer, "myModel");
+            ScreenshotUtil.ScreenshotPaintable paintable = new ScreenshotUtil.ScreenshotPaintable(myModel.getChanges(), ScreenshotUtil.myViewer_needAlignChanges(myModel));
+            EditorEx editor1 = ScreenshotUtil.getEditor(twosideTextDiffViewer.getEditor1(), new Rectangle(0, leftTop, maxWidth, height));
+            EditorEx editor2 = ScreenshotUtil.getEditor(twosideTextDiffViewer.getEditor2(), new Rectangle(0, rightTop, maxWidth, height));
+            DiffDividerDrawUtil.paintPolygons(gg, dividerWidth, editor1, editor2, paintable);
+
+            /** {@link SimpleDiffViewer.MyFoldingModel#paintOnDivider(Graphics2D, Component)} */
+            /** {@link FoldingModelSupport.MyPaintable#paintOnDivider(Graphics2D, Component)} */
+            FoldingModelSupport myFoldingModel = ScreenshotUtil.getField(twosideTextDiffViewer, "myFoldingModel");
+            DiffDividerDrawUtil.DividerSeparatorPaintable myPaintable = ScreenshotUtil.getField(myFoldingModel, "myPaintable");
+            DiffDividerDrawUtil.paintSeparators(gg, dividerWidth, editor1, editor2, myPaintable);
+        } finally {
+            gg.dispose();
         }
-        ApplicationManager.getApplication().invokeLater(() -> {
-            VirtualFile vf = VfsUtil.findFileByIoFile(file, true);
-            if (vf != null) {
-                FileEditorManager.getInstance(project).openFile(vf, true);
-            } else {
-                NotificationGroupManager.getInstance()
-                                        .getNotificationGroup(ID)
-                                        .createNotification(ID, "Failed to open image in editor.", NotificationType.WARNING)
-                                        .notify(project);
-            }
-        });
     }
 
-    private static void notifyError(Project project, String content) {
-        NotificationGroupManager.getInstance()
-                                .getNotificationGroup(ID)
-                                .createNotification(ID, content, NotificationType.ERROR)
-                                .notify(project);
+    /** The selected format if it is a vector one and files are saved, such captures are recorded instead of rasterized. */
+    private static @Nullable VectorImageEncoder vectorEncoder(ScreenshotState state) {
+        return state.save && ImageEncoder.find(state.imageFormat) instanceof VectorImageEncoder vector ? vector : null;
     }
 
-    /**  Ensures the caret is hidden during painting to avoid capturing it in the screenshot. */
-    private static final class CaretVisibilityGuard implements AutoCloseable {
-
-        private final Object target;
-        private final Method setter;
-        private final Boolean previous;
-
-        CaretVisibilityGuard(Editor editor) {
-            Object possibleEditor = editor instanceof EditorEx ? editor : null;
-            Object caretModel = editor.getCaretModel();
-
-            Object target = findTargetWithSetter(possibleEditor);
-            if (target == null) {
-                target = findTargetWithSetter(caretModel);
-            }
-
-            this.target = target;
-            this.setter = target == null ? null : findSetter(target);
-            this.previous = target == null ? null : readCurrentState(target);
-
-            if (this.target != null && this.setter != null) {
-                setCaretState(false);
-            }
-        }
-
-        private static Object findTargetWithSetter(Object candidate) {
-            if (candidate == null) {
-                return null;
-            }
-            return findSetter(candidate) != null ? candidate : null;
-        }
-
-        private static Method findSetter(Object target) {
-            for (String name : new String[]{"setCaretEnabled", "setCaretsEnabled", "setCaretVisible"}) {
-                try {
-                    return target.getClass().getMethod(name, boolean.class);
-                } catch (NoSuchMethodException ignored) {
-                }
-            }
-            return null;
-        }
-
-        private static Boolean readCurrentState(Object target) {
-            for (String getter : new String[]{"isCaretEnabled", "isCaretsEnabled", "isCaretVisible"}) {
-                try {
-                    Method method = target.getClass().getMethod(getter);
-                    Object result = method.invoke(target);
-                    if (result instanceof Boolean b) {
-                        return b;
-                    }
-                } catch (Exception ignored) {
-                }
-            }
-            return null;
-        }
-
-        private void setCaretState(boolean enabled) {
-            try {
-                setter.invoke(target, enabled);
-            } catch (Exception ignored) {
-            }
-        }
+    private static String vectorDetail(ScreenshotState state) {
+        return state.clipboard ? "Too large for the clipboard, only saved." : "";
+    }
 
-        @Override
-        public void close() {
-            if (target != null && setter != null) {
-                setCaretState(previous != null ? previous : true);
-            }
-        }
+    private static String fileName(Editor editor) {
+        VirtualFile virtualFile = ((EditorImpl) editor).getVirtualFile();
+        return virtualFile != null ? virtualFile.getName() : "screenshot";
     }
 
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.ide.actions.RevealFileAction;
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationAction;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.options.ShowSettingsUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.wm.StatusBar;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static plus.wcj.jetbrains.plugins.screenshot.ScreenshotAction.ID;
+
+/**
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class ScreenshotNotifier {
+
+    static final String NO_OUTPUT = "Please enable Clipboard or set an Output directory in Settings.";
+
+    private static final AtomicBoolean NO_OUTPUT_SHOWN = new AtomicBoolean();
+
+    private ScreenshotNotifier() {
+    }
+
+    /** Asks to enable an output, in a balloon the first time in an IDE session and in the status bar after that. */
+    public static void notifyNoOutput(Project project) {
+        if (!NO_OUTPUT_SHOWN.compareAndSet(false, true)) {
+            StatusBar.Info.set(ID + ": " + NO_OUTPUT, project);
+            return;
+        }
+        NotificationGroupManager.getInstance()
+                                .getNotificationGroup(ID)
+                                .createNotification(ID, NO_OUTPUT, NotificationType.INFORMATION)
+                                .addAction(NotificationAction.createSimpleExpiring("Open in Settings", () -> ShowSettingsUtil.getInstance().showSettingsDialog(project, ID)))
+                                .notify(project);
+    }
+
+    /** @param detail appended as a second line, e.g. the {@link CaptureStrategy} that was used, may be empty */
+    public static void notifyInfo(Project project, boolean clipboard, boolean save, File file, String detail) {
+        String content = "Please enable Clipboard or set an Output directory in Settings.";
+        Notification n = NotificationGroupManager.getInstance()
+                                                 .getNotificationGroup(ID)
+                                                 .createNotification(ID, content, NotificationType.INFORMATION);
+
+        if (save && file != null && file.exists()) {
+            content = "Saved to: \n" + file.getName();
+            n.addAction(NotificationAction.createSimpleExpiring("Open in Folder", () -> RevealFileAction.openFile(file)));
+            n.addAction(NotificationAction.createSimpleExpiring("Open in Editor", () -> openImageInEditor(project, file)));
+        }
+
+        if (clipboard && save) {
+            content = "Copied to clipboard and saved to:";
+        } else if (clipboard) {
+            content = "Copied to clipboard.";
+        }
+
+        if (detail != null && !detail.isEmpty()) {
+            content = content + "\n" + detail;
+        }
+
+        n.setContent(content);
+        n.notify(project);
+    }
+
+    public static void notifyBatch(Project project, File outputDir, String report) {
+        NotificationGroupManager.getInstance()
+                                .getNotificationGroup(ID)
+                                .createNotification(ID, report, NotificationType.INFORMATION)
+                                .addAction(NotificationAction.createSimpleExpiring("Open in Folder", () -> RevealFileAction.openDirectory(outputDir)))
+                                .notify(project);
+    }
+
+    public static void notifyError(Project project, String content) {
+        NotificationGroupManager.getInstance()
+                                .getNotificationGroup(ID)
+                                .createNotification(ID, content, NotificationType.ERROR)
+                                .notify(project);
+    }
+
+    private static void openImageInEditor(Project project, File file) {
+        if (project == null || file == null) {
+            return;
+        }
+        ApplicationManager.getApplication().invokeLater(() -> {
+            VirtualFile vf = VfsUtil.findFileByIoFile(file, true);
+            if (vf != null) {
+                FileEditorManager.getInstance(project).openFile(vf, true);
+            } else {
+                NotificationGroupManager.getInstance()
+                                        .getNotificationGroup(ID)
+                                        .createNotification(ID, "Failed to open image in editor.", NotificationType.WARNING)
+                                        .notify(project);
+            }
+        });
+    }
+}
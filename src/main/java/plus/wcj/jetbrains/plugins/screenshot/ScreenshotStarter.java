@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.openapi.application.ApplicationStarter;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotStateProvider;
+import plus.wcj.jetbrains.plugins.screenshot.encode.ImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.encode.PngImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.encode.VectorImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.export.DedupeMode;
+import plus.wcj.jetbrains.plugins.screenshot.export.ExportWorkers;
+import plus.wcj.jetbrains.plugins.screenshot.export.ScreenshotFiles;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless entry point for build scripts, e.g. {@code idea.sh screenshot --out build/images --gutter --scale 2 src}.
+ * <p>
+ * Options start from the saved {@link ScreenshotState}. Files are painted with the {@link OffscreenRenderer} one
+ * at a time on the EDT, while up to {@code --workers} images are encoded and written in the background. Files too
+ * large for one image are streamed to PNG band by band. Vector formats are not offered, as only pixels come out of the
+ * renderer. Every file prints its timings, the process exits with 1 if any file failed and with 2 for invalid arguments.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class ScreenshotStarter implements ApplicationStarter {
+
+    private static final Logger LOG = Logger.getInstance(ScreenshotStarter.class);
+
+    private static final String USAGE = """
+            Usage: screenshot [options] <file or directory>...
+              --out <dir>        output directory, defaults to the one in Settings
+              --gutter           include the gutter, --no-gutter to leave it out
+              --scale <factor>   fixed output scale from 0.5 to 3
+              --format <id>      image format: png, jpeg, bmp or tiff
+              --workers <n>      images encoded at the same time, %d by default
+            """;
+
+    private final AtomicInteger written = new AtomicInteger();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @Override
+    public String getCommandName() {
+        return "screenshot";
+    }
+
+    @Override
+    public boolean isHeadless() {
+        return true;
+    }
+
+    @Override
+    public int getRequiredModality() {
+        return NOT_IN_EDT;
+    }
+
+    @Override
+    public void main(@NotNull List<String> args) {
+        int status;
+        try {
+            status = run(args.subList(1, args.size()));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.printf(USAGE, ExportWorkers.COUNT);
+            status = 2;
+        } catch (Throwable e) {
+            LOG.warn(e);
+            System.err.printf("FAIL  %s%n", e.getMessage() != null ? e.getMessage() : e.toString());
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+    private int run(List<String> args) {
+        ScreenshotState state = ScreenshotStateProvider.getInstance().snapshot();
+        state.clipboard = false;
+        state.save = true;
+        // every file is painted once, there is nothing to reuse
+        state.renderCacheMb = 0;
+        state.dedupeMode = DedupeMode.OFF;
+        int workers = ExportWorkers.COUNT;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            switch (arg) {
+                case "--out" -> state.outputDir = Paths.get(value(args, ++i, arg)).toAbsolutePath().toString();
+                case "--gutter" -> state.includeGutter = true;
+                case "--no-gutter" -> state.includeGutter = false;
+                case "--scale" -> {
+                    state.fixedOutputScale = true;
+                    state.outputScale = number(value(args, i + 1, arg), arg, 0.5, 3);
+                    i++;
+                }
+                case "--format" -> {
+                    state.imageFormat = value(args, ++i, arg);
+                    ImageEncoder format = ImageEncoder.find(state.imageFormat);
+                    if (!format.getId().equals(state.imageFormat)) {
+                        throw new IllegalArgumentException("Unknown image format " + state.imageFormat);
+                    }
+                    if (format instanceof VectorImageEncoder) {
+                        throw new IllegalArgumentException(state.imageFormat + " is a vector format, the command line only writes images");
+                    }
+                }
+                case "--workers" -> workers = integer(value(args, ++i, arg), arg, 1, 64);
+                default -> {
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                    }
+                    inputs.add(Paths.get(arg).toAbsolutePath());
+                }
+            }
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No files given");
+        }
+        state.loadStateInit();
+
+        List<VirtualFile> files = collect(inputs);
+        ImageEncoder encoder = ImageEncoder.find(state.imageFormat);
+        if (encoder instanceof VectorImageEncoder) {
+            // a vector format saved in Settings, the pixels would only be wrapped into it
+            System.err.printf("%s is a vector format, writing %s instead%n", encoder.getId(), PngImageEncoder.ID);
+            state.imageFormat = PngImageEncoder.ID;
+            encoder = ImageEncoder.find(PngImageEncoder.ID);
+        }
+        ImageEncoder imageEncoder = encoder;
+        ProgressIndicator indicator = new EmptyProgressIndicator();
+        long start = System.nanoTime();
+        ExecutorService pool = AppExecutorUtil.createBoundedApplicationPoolExecutor("Screenshot Pro CLI", workers);
+        Semaphore slots = new Semaphore(workers);
+        List<Future<?>> pending = new ArrayList<>();
+        try {
+            for (VirtualFile file : files) {
+                ExportWorkers.acquire(slots, indicator);
+                long paintStart = System.nanoTime();
+                OffscreenRenderer.Rendering rendering;
+                try {
+                    rendering = ExportWorkers.onEdt(() -> OffscreenRenderer.render(null, file, state));
+                } catch (RuntimeException e) {
+                    slots.release();
+                    fail(file.getPath(), e);
+                    continue;
+                }
+                if (rendering.image() == null) {
+                    // streamed right here, so that its bands are always closed
+                    try {
+                        writePages(file, rendering, state, indicator);
+                    } finally {
+                        slots.release();
+                    }
+                    continue;
+                }
+                long paintNanos = System.nanoTime() - paintStart;
+                pending.add(pool.submit(() -> {
+                    try {
+                        write(file, rendering.image(), paintNanos, imageEncoder, state, indicator);
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+            for (Future<?> future : pending) {
+                ExportWorkers.await(future, indicator);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.printf("%d files written in %.1f s, %d failed%n", written.get(), (System.nanoTime() - start) / 1e9, failures.get());
+        return failures.get() == 0 ? 0 : 1;
+    }
+
+    /** The text files of every input, recursing into directories. A missing input counts as a failure. */
+    private List<VirtualFile> collect(List<Path> inputs) {
+        FileTypeManager fileTypeManager = FileTypeManager.getInstance();
+        List<VirtualFile> files = new ArrayList<>();
+        for (Path input : inputs) {
+            VirtualFile root = LocalFileSystem.getInstance().refreshAndFindFileByNioFile(input);
+            if (root == null) {
+                fail(input.toString(), new IllegalArgumentException("not found"));
+                continue;
+            }
+            ReadAction.run(() -> VfsUtilCore.iterateChildrenRecursively(root, file -> !fileTypeManager.isFileIgnored(file), file -> {
+                if (!file.isDirectory() && !file.getFileType().isBinary()) {
+                    files.add(file);
+                }
+                return true;
+            }));
+        }
+        return files;
+    }
+
+    private void writePages(VirtualFile file, OffscreenRenderer.Rendering rendering, ScreenshotState state, ProgressIndicator indicator) {
+        long start = System.nanoTime();
+        try {
+            long bytes = rendering.writePages(Paths.get(state.outputDir), ScreenshotFiles.baseName(file.getName()), state, indicator);
+            String format = PngImageEncoder.ID.equals(state.imageFormat) ? "" : " instead of " + state.imageFormat;
+            System.out.printf("OK    %s  %s%s, %d ms, %s -> %s%n", file.getPath(), rendering.describe(), format,
+                              (System.nanoTime() - start) / 1_000_000, StringUtil.formatFileSize(bytes), state.outputDir);
+            written.incrementAndGet();
+        } catch (Exception e) {
+            fail(file.getPath(), e);
+        }
+    }
+
+    private void write(VirtualFile file, BufferedImage image, long paintNanos, ImageEncoder encoder, ScreenshotState state,
+                       ProgressIndicator indicator) {
+        long start = System.nanoTime();
+        try {
+            Path out = ScreenshotFiles.write(Paths.get(state.outputDir), ScreenshotFiles.baseName(file.getName()), encoder.getExtension(),
+                                             indicator, stream -> encoder.encode(image, state, stream));
+            System.out.printf("OK    %s  paint %d ms, encode %d ms, %s -> %s%n", file.getPath(), paintNanos / 1_000_000,
+                              (System.nanoTime() - start) / 1_000_000, StringUtil.formatFileSize(Files.size(out)), out);
+            written.incrementAndGet();
+        } catch (Exception e) {
+            fail(file.getPath(), e);
+        }
+    }
+
+    private void fail(String name, Exception e) {
+        failures.incrementAndGet();
+        System.err.printf("FAIL  %s  %s%n", name, e.getMessage());
+    }
+
+    private static String value(List<String> args, int index, String option) {
+        if (index >= args.size()) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args.get(index);
+    }
+
+    private static int integer(String value, String option, int min, int max) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= min && number <= max) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException(option + " must be a whole number from " + min + " to " + max);
+    }
+
+    private static double number(String value, String option, double min, double max) {
+        try {
+            double number = Double.parseDouble(value);
+            if (number >= min && number <= max) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException(option + " must be a number from " + min + " to " + max);
+    }
+}
@@ -23,12 +23,20 @@ import com.intellij.diff.tools.simple.SimpleDiffViewer;
 import com.intellij.diff.util.DiffDividerDrawUtil;
 import com.intellij.diff.util.Side;
 import com.intellij.diff.util.TextDiffType;
+import com.intellij.diff.tools.util.FoldingModelSupport;
+import com.intellij.diff.tools.util.side.TwosideTextDiffViewer;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.LogicalPosition;
+import com.intellij.openapi.editor.ScrollType;
 import com.intellij.openapi.editor.ScrollingModel;
+import com.intellij.openapi.editor.event.VisibleAreaListener;
 import com.intellij.openapi.editor.ex.EditorEx;
-import com.intellij.util.ReflectionUtil;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
@@ -40,48 +48,187 @@ import java.util.List;
  */
 public final class ScreenshotUtil {
 
+    private static final Logger LOG = Logger.getInstance(ScreenshotUtil.class);
+
+    private static final Class<?>[] EDITOR_INTERFACES = {EditorEx.class};
+
+    private static final Method GET_SCROLLING_MODEL = scrollingModelGetter();
+
+    /** Whether every internal the diff capture reads exists for a viewer class, checked once per class. */
+    private static final ClassValue<Boolean> DIFF_CAPTURE_SUPPORT = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> viewerClass) {
+            boolean supported = Accessors.getter(viewerClass, "myModel") != null
+                    && Accessors.getter(viewerClass, "myFoldingModel") != null
+                    && Accessors.getter(SimpleDiffModel.class, "myViewer") != null
+                    && Accessors.getter(FoldingModelSupport.class, "myPaintable") != null
+                    && Accessors.method(SimpleDiffViewer.class, "needAlignChanges") != null;
+            if (!supported) {
+                LOG.warn("Diff screenshots are not supported for " + viewerClass.getName() + " in this IDE build");
+            }
+            return supported;
+        }
+    };
+
     private ScreenshotUtil() {
     }
 
+    public static boolean isDiffCaptureSupported(@NotNull TwosideTextDiffViewer viewer) {
+        return DIFF_CAPTURE_SUPPORT.get(viewer.getClass());
+    }
+
+    @SuppressWarnings("unchecked")
     public static <T> T getField(Object obj, String fieldName) {
-        return ReflectionUtil.getField(obj.getClass(), obj, null, fieldName);
+        MethodHandle getter = Accessors.getter(obj.getClass(), fieldName);
+        if (getter == null) {
+            throw new IllegalStateException("Field " + fieldName + " not found in " + obj.getClass().getName());
+        }
+        try {
+            return (T) (Object) getter.invokeExact(obj);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to read " + fieldName + " of " + obj.getClass().getName(), e);
+        }
     }
 
-    public static boolean myViewer_needAlignChanges(SimpleDiffModel simpleDiffModel) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException {
-        SimpleDiffViewer myViewer = getField(simpleDiffModel, "myViewer");
-        Method needAlignChanges = SimpleDiffViewer.class.getDeclaredMethod("needAlignChanges");
-        needAlignChanges.setAccessible(true);
-        return (boolean) needAlignChanges.invoke(myViewer);
+    public static boolean myViewer_needAlignChanges(SimpleDiffModel simpleDiffModel) {
+        Object myViewer = getField(simpleDiffModel, "myViewer");
+        MethodHandle needAlignChanges = Accessors.method(SimpleDiffViewer.class, "needAlignChanges");
+        if (needAlignChanges == null) {
+            throw new IllegalStateException("SimpleDiffViewer.needAlignChanges() not found");
+        }
+        try {
+            return (boolean) needAlignChanges.invokeExact(myViewer);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to call SimpleDiffViewer.needAlignChanges()", e);
+        }
     }
 
-    public static EditorEx getEditor(@NotNull EditorEx editor, int maxHeight, int maxWidth) {
-        Object o = Proxy.newProxyInstance(
-                EditorEx.class.getClassLoader(),
-                new Class[]{EditorEx.class},
-                (p, method, args) -> {
-                    if (method.getName().equals("getScrollingModel")) {
-                        Object invoke = method.invoke(editor, args);
-                        return getVisibleArea(invoke, maxHeight, maxWidth);
-                    } else {
-                        return method.invoke(editor, args);
-                    }
-                });
-        return (EditorEx) o;
+    /**
+     * An editor that reports {@code visibleArea} as its visible area, so the divider is painted for every line in it,
+     * e.g. the whole capture or one hunk of a collapsed diff.
+     */
+    public static EditorEx getEditor(@NotNull EditorEx editor, @NotNull Rectangle visibleArea) {
+        ScrollingModel scrollingModel = new FixedViewportScrollingModel(editor.getScrollingModel(), visibleArea);
+        return (EditorEx) Proxy.newProxyInstance(EditorEx.class.getClassLoader(), EDITOR_INTERFACES, new FixedViewportEditorHandler(editor, scrollingModel));
     }
 
-    public static Object getVisibleArea(Object invoke, int maxHeight, int maxWidth) {
-        return Proxy.newProxyInstance(
-                ScrollingModel.class.getClassLoader(),
-                new Class[]{ScrollingModel.class},
-                (p, method, args) -> {
-                    if (method.getName().equals("getVisibleArea")) {
-                        return new Rectangle(0, 0, maxWidth, maxHeight);
-                    } else if (method.getName().equals("getVerticalScrollOffset")) {
-                        return 0;
-                    } else {
-                        return method.invoke(invoke, args);
-                    }
-                });
+    private static Method scrollingModelGetter() {
+        try {
+            return Editor.class.getMethod("getScrollingModel");
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * {@link EditorEx} has far too many methods, which change between IDE builds, for a hand written delegate,
+     * so the editor stays a {@link Proxy}. The JDK caches the proxy class, the handler dispatches on a cached {@link Method}.
+     */
+    private static final class FixedViewportEditorHandler implements InvocationHandler {
+
+        private final EditorEx editor;
+
+        private final ScrollingModel scrollingModel;
+
+        FixedViewportEditorHandler(EditorEx editor, ScrollingModel scrollingModel) {
+            this.editor = editor;
+            this.scrollingModel = scrollingModel;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (GET_SCROLLING_MODEL.equals(method)) {
+                return scrollingModel;
+            }
+            try {
+                return method.invoke(editor, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /** Delegates to the real scrolling model, but pins the visible area, e.g. to the whole capture. */
+    private static final class FixedViewportScrollingModel implements ScrollingModel {
+
+        private final ScrollingModel delegate;
+
+        private final Rectangle visibleArea;
+
+        FixedViewportScrollingModel(ScrollingModel delegate, Rectangle visibleArea) {
+            this.delegate = delegate;
+            this.visibleArea = visibleArea;
+        }
+
+        @Override
+        public @NotNull Rectangle getVisibleArea() {
+            return new Rectangle(visibleArea);
+        }
+
+        @Override
+        public @NotNull Rectangle getVisibleAreaOnScrollingFinished() {
+            return new Rectangle(visibleArea);
+        }
+
+        @Override
+        public int getVerticalScrollOffset() {
+            return visibleArea.y;
+        }
+
+        @Override
+        public int getHorizontalScrollOffset() {
+            return delegate.getHorizontalScrollOffset();
+        }
+
+        @Override
+        public void scrollToCaret(@NotNull ScrollType scrollType) {
+            delegate.scrollToCaret(scrollType);
+        }
+
+        @Override
+        public void scrollTo(@NotNull LogicalPosition pos, @NotNull ScrollType scrollType) {
+            delegate.scrollTo(pos, scrollType);
+        }
+
+        @Override
+        public void runActionOnScrollingFinished(@NotNull Runnable action) {
+            delegate.runActionOnScrollingFinished(action);
+        }
+
+        @Override
+        public void disableAnimation() {
+            delegate.disableAnimation();
+        }
+
+        @Override
+        public void enableAnimation() {
+            delegate.enableAnimation();
+        }
+
+        @Override
+        public void scrollVertically(int scrollOffset) {
+            delegate.scrollVertically(scrollOffset);
+        }
+
+        @Override
+        public void scrollHorizontally(int scrollOffset) {
+            delegate.scrollHorizontally(scrollOffset);
+        }
+
+        @Override
+        public void scroll(int horizontalOffset, int verticalOffset) {
+            delegate.scroll(horizontalOffset, verticalOffset);
+        }
+
+        @Override
+        public void addVisibleAreaListener(@NotNull VisibleAreaListener listener) {
+            delegate.addVisibleAreaListener(listener);
+        }
+
+        @Override
+        public void removeVisibleAreaListener(@NotNull VisibleAreaListener listener) {
+            delegate.removeVisibleAreaListener(listener);
+        }
     }
 
 
@@ -51,7 +51,7 @@ public class ScreenshotConfigurable implements SearchableConfigurable, Configura
     @Override
     public boolean isModified() {
         ScreenshotStateProvider service = ScreenshotStateProvider.getInstance();
-        return settingsUI != null && !service.getState().equals(settingsUI.toState());
+        return settingsUI != null && !service.snapshot().equals(settingsUI.toState());
     }
 
     @Override
@@ -63,7 +63,7 @@ public class ScreenshotConfigurable implements SearchableConfigurable, Configura
     @Override
     public void reset() {
         ScreenshotStateProvider service = ScreenshotStateProvider.getInstance();
-        settingsUI.fromState(service.getState());
+        settingsUI.fromState(service.snapshot());
     }
 
     @Override
@@ -18,6 +18,10 @@
 package plus.wcj.jetbrains.plugins.screenshot.config;
 
 import org.apache.commons.lang3.StringUtils;
+import plus.wcj.jetbrains.plugins.screenshot.RasterType;
+import plus.wcj.jetbrains.plugins.screenshot.encode.PngImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.export.DedupeMode;
+import plus.wcj.jetbrains.plugins.screenshot.png.PngFilter;
 
 import java.nio.file.Paths;
 import java.util.Objects;
@@ -35,11 +39,94 @@ public class ScreenshotState {
 
     public String outputDir;
 
+    /** Id of the {@link plus.wcj.jetbrains.plugins.screenshot.encode.ImageEncoder} for saved files. */
+    public String imageFormat = PngImageEncoder.ID;
+
+    /** {@link java.util.zip.Deflater} level 0-9 of the built-in PNG encoder. */
+    public int pngCompressionLevel = 6;
+
+    public PngFilter pngFilter = PngFilter.ADAPTIVE;
+
+    /** JPEG quality in percent. */
+    public int jpegQuality = 90;
+
+    /** Upper bound for the raster memory of one capture, larger captures are streamed, downscaled or paginated. */
+    public int memoryBudgetMb = 512;
+
+    public RasterType rasterType = RasterType.ARGB;
+
+    /** Paint at {@link #outputScale} instead of the HiDPI scale of the display, so image sizes do not depend on the monitor. */
+    public boolean fixedOutputScale = false;
+
+    /** Device pixels per user space pixel, 0.5 to 3 in steps of 0.25. */
+    public double outputScale = 2;
+
+    /** With a fixed scale, paint twice as large and average down for smoother text. */
+    public boolean highQualityDownsample = false;
+
+    /** Memory for painted bands that are reused when the same code is captured again, 0 to turn the cache off. */
+    public int renderCacheMb = 64;
+
+    /** Saved captures longer than this many lines are split into one file per page, 0 keeps them in one image. */
+    public int linesPerPage = 0;
+
+    /** Revisions in the animated history of a file, the newest ones. */
+    public int filmstripRevisions = 10;
+
+    /** Saved screenshots identical to an earlier one in {@link #outputDir} are not written again. */
+    public DedupeMode dedupeMode = DedupeMode.OFF;
+
+    /** Without a selection only the visible area of the editor is captured instead of the whole file. */
+    public boolean visibleAreaOnly = false;
+
+    /** A diff without a selection shows only its changed hunks, with {@link #diffContextLines} unchanged lines around each. */
+    public boolean diffHunksOnly = false;
+
+    public int diffContextLines = 3;
+
 
     public void loadStateInit() {
         if (StringUtils.isBlank(outputDir)) {
             outputDir = Paths.get(System.getProperty("user.home"), "Downloads", "screenshot").toString();
         }
+        if (StringUtils.isBlank(imageFormat)) {
+            imageFormat = PngImageEncoder.ID;
+        }
+        if (pngCompressionLevel < 0 || pngCompressionLevel > 9) {
+            pngCompressionLevel = 6;
+        }
+        if (pngFilter == null) {
+            pngFilter = PngFilter.ADAPTIVE;
+        }
+        if (jpegQuality < 1 || jpegQuality > 100) {
+            jpegQuality = 90;
+        }
+        if (memoryBudgetMb < 16) {
+            memoryBudgetMb = 512;
+        }
+        if (rasterType == null) {
+            rasterType = RasterType.ARGB;
+        }
+        if (!(outputScale >= 0.5 && outputScale <= 3)) {
+            outputScale = 2;
+        }
+        // quarter steps keep band heights on whole pixels
+        outputScale = Math.round(outputScale * 4) / 4.0;
+        if (renderCacheMb < 0) {
+            renderCacheMb = 64;
+        }
+        if (linesPerPage < 0) {
+            linesPerPage = 0;
+        }
+        if (filmstripRevisions < 2 || filmstripRevisions > 100) {
+            filmstripRevisions = 10;
+        }
+        if (dedupeMode == null) {
+            dedupeMode = DedupeMode.OFF;
+        }
+        if (diffContextLines < 0 || diffContextLines > 100) {
+            diffContextLines = 3;
+        }
     }
 
     @Override
@@ -48,11 +135,19 @@ public class ScreenshotState {
             return false;
         }
         ScreenshotState that = (ScreenshotState) o;
-        return includeGutter == that.includeGutter && clipboard == that.clipboard && save == that.save && Objects.equals(outputDir, that.outputDir);
+        return includeGutter == that.includeGutter && clipboard == that.clipboard && save == that.save && Objects.equals(outputDir, that.outputDir)
+                && Objects.equals(imageFormat, that.imageFormat)
+                && pngCompressionLevel == that.pngCompressionLevel && pngFilter == that.pngFilter && jpegQuality == that.jpegQuality
+                && memoryBudgetMb == that.memoryBudgetMb && rasterType == that.rasterType
+                && fixedOutputScale == that.fixedOutputScale && outputScale == that.outputScale && highQualityDownsample == that.highQualityDownsample
+                && renderCacheMb == that.renderCacheMb && linesPerPage == that.linesPerPage && filmstripRevisions == that.filmstripRevisions && dedupeMode == that.dedupeMode
+                && visibleAreaOnly == that.visibleAreaOnly && diffHunksOnly == that.diffHunksOnly && diffContextLines == that.diffContextLines;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(includeGutter, clipboard, save, outputDir);
+        return Objects.hash(includeGutter, clipboard, save, outputDir, imageFormat, pngCompressionLevel, pngFilter, jpegQuality, memoryBudgetMb, rasterType,
+                            fixedOutputScale, outputScale, highQualityDownsample, renderCacheMb, linesPerPage, filmstripRevisions, dedupeMode,
+                            visibleAreaOnly, diffHunksOnly, diffContextLines);
     }
 }
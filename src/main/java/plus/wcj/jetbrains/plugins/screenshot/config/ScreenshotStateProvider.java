@@ -33,6 +33,13 @@ public class ScreenshotStateProvider implements PersistentStateComponent<Screens
 
     ScreenshotState config = new ScreenshotState();
 
+    /** Copy of {@link #config} for readers on any thread, replaced as a whole and never handed out. */
+    private volatile ScreenshotState snapshot;
+
+    public ScreenshotStateProvider() {
+        publish();
+    }
+
     public static ScreenshotStateProvider getInstance() {
         return ApplicationManager.getApplication().getService(ScreenshotStateProvider.class);
     }
@@ -40,15 +47,33 @@ public class ScreenshotStateProvider implements PersistentStateComponent<Screens
     @Override
     @NotNull
     public ScreenshotState getState() {
-        this.config.loadStateInit();
         return this.config;
     }
 
     @Override
     public void loadState(@NotNull ScreenshotState state) {
         XmlSerializerUtil.copyBean(state, this.config);
-        this.config.loadStateInit();
+        publish();
     }
 
+    /** The settings as last applied, cheap enough for {@code update()}. Every caller gets a copy of its own to adjust. */
+    public @NotNull ScreenshotState snapshot() {
+        ScreenshotState copy = new ScreenshotState();
+        XmlSerializerUtil.copyBean(this.snapshot, copy);
+        return copy;
+    }
+
+    /** Whether a capture goes anywhere, without copying the snapshot. */
+    public boolean hasOutput() {
+        ScreenshotState state = this.snapshot;
+        return state.clipboard || state.save;
+    }
+
+    private void publish() {
+        this.config.loadStateInit();
+        ScreenshotState copy = new ScreenshotState();
+        XmlSerializerUtil.copyBean(this.config, copy);
+        this.snapshot = copy;
+    }
 
 }
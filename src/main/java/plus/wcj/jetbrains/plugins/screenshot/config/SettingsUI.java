@@ -21,7 +21,13 @@ package plus.wcj.jetbrains.plugins.screenshot.config;
 import com.intellij.openapi.fileChooser.FileChooserDescriptor;
 import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
 import com.intellij.openapi.ui.TextFieldWithBrowseButton;
+import com.intellij.ui.SimpleListCellRenderer;
 import com.intellij.ui.components.JBCheckBox;
+import plus.wcj.jetbrains.plugins.screenshot.RasterType;
+import plus.wcj.jetbrains.plugins.screenshot.encode.ImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.encode.PngImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.export.DedupeMode;
+import plus.wcj.jetbrains.plugins.screenshot.png.PngFilter;
 
 import javax.swing.*;
 import java.awt.event.ItemEvent;
@@ -41,6 +47,38 @@ public class SettingsUI {
 
     public TextFieldWithBrowseButton outputDir;
 
+    public JComboBox<ImageEncoder> imageFormat;
+
+    public JSpinner pngCompressionLevel;
+
+    public JComboBox<PngFilter> pngFilter;
+
+    public JSpinner jpegQuality;
+
+    public JSpinner memoryBudgetMb;
+
+    public JComboBox<RasterType> rasterType;
+
+    public JBCheckBox fixedOutputScale;
+
+    public JSpinner outputScale;
+
+    public JBCheckBox highQualityDownsample;
+
+    public JSpinner renderCacheMb;
+
+    public JSpinner linesPerPage;
+
+    public JComboBox<DedupeMode> dedupeMode;
+
+    public JSpinner filmstripRevisions;
+
+    public JBCheckBox visibleAreaOnly;
+
+    public JBCheckBox diffHunksOnly;
+
+    public JSpinner diffContextLines;
+
 
     public JPanel getPanel() {
         FileChooserDescriptor descriptor = FileChooserDescriptorFactory.createSingleFolderDescriptor();
@@ -51,6 +89,22 @@ public class SettingsUI {
                 descriptor
         );
 
+        imageFormat.setModel(new DefaultComboBoxModel<>(ImageEncoder.EP_NAME.getExtensionList().toArray(new ImageEncoder[0])));
+        imageFormat.setRenderer(SimpleListCellRenderer.create("", ImageEncoder::getDisplayName));
+        pngCompressionLevel.setModel(new SpinnerNumberModel(6, 0, 9, 1));
+        pngFilter.setModel(new DefaultComboBoxModel<>(PngFilter.values()));
+        jpegQuality.setModel(new SpinnerNumberModel(90, 1, 100, 5));
+        memoryBudgetMb.setModel(new SpinnerNumberModel(512, 16, 65536, 64));
+        rasterType.setModel(new DefaultComboBoxModel<>(RasterType.values()));
+        outputScale.setModel(new SpinnerNumberModel(2.0, 0.5, 3.0, 0.25));
+        fixedOutputScale.addItemListener(itemEvent -> updateOutputScale());
+        renderCacheMb.setModel(new SpinnerNumberModel(64, 0, 4096, 16));
+        linesPerPage.setModel(new SpinnerNumberModel(0, 0, 100000, 50));
+        dedupeMode.setModel(new DefaultComboBoxModel<>(DedupeMode.values()));
+        filmstripRevisions.setModel(new SpinnerNumberModel(10, 2, 100, 1));
+        diffContextLines.setModel(new SpinnerNumberModel(3, 0, 100, 1));
+        diffHunksOnly.addItemListener(itemEvent -> diffContextLines.setEnabled(diffHunksOnly.isSelected()));
+
         save.addItemListener(itemEvent -> {
             boolean selected = itemEvent.getStateChange() == ItemEvent.SELECTED;
             outputDir.setEnabled(selected);
@@ -67,6 +121,23 @@ public class SettingsUI {
         configProvider.save = this.save.isSelected();
 
         configProvider.outputDir = this.outputDir.getText();
+        ImageEncoder encoder = (ImageEncoder) this.imageFormat.getSelectedItem();
+        configProvider.imageFormat = encoder != null ? encoder.getId() : PngImageEncoder.ID;
+        configProvider.pngCompressionLevel = (Integer) this.pngCompressionLevel.getValue();
+        configProvider.pngFilter = (PngFilter) this.pngFilter.getSelectedItem();
+        configProvider.jpegQuality = (Integer) this.jpegQuality.getValue();
+        configProvider.memoryBudgetMb = (Integer) this.memoryBudgetMb.getValue();
+        configProvider.rasterType = (RasterType) this.rasterType.getSelectedItem();
+        configProvider.fixedOutputScale = this.fixedOutputScale.isSelected();
+        configProvider.outputScale = ((Number) this.outputScale.getValue()).doubleValue();
+        configProvider.highQualityDownsample = this.highQualityDownsample.isSelected();
+        configProvider.renderCacheMb = (Integer) this.renderCacheMb.getValue();
+        configProvider.linesPerPage = (Integer) this.linesPerPage.getValue();
+        configProvider.dedupeMode = (DedupeMode) this.dedupeMode.getSelectedItem();
+        configProvider.filmstripRevisions = (Integer) this.filmstripRevisions.getValue();
+        configProvider.visibleAreaOnly = this.visibleAreaOnly.isSelected();
+        configProvider.diffHunksOnly = this.diffHunksOnly.isSelected();
+        configProvider.diffContextLines = (Integer) this.diffContextLines.getValue();
         return configProvider;
     }
 
@@ -75,5 +146,29 @@ public class SettingsUI {
         this.clipboard.setSelected(config.clipboard);
         this.save.setSelected(config.save);
         this.outputDir.setText(config.outputDir);
+        this.imageFormat.setSelectedItem(ImageEncoder.find(config.imageFormat));
+        this.pngCompressionLevel.setValue(config.pngCompressionLevel);
+        this.pngFilter.setSelectedItem(config.pngFilter);
+        this.jpegQuality.setValue(config.jpegQuality);
+        this.memoryBudgetMb.setValue(config.memoryBudgetMb);
+        this.rasterType.setSelectedItem(config.rasterType);
+        this.fixedOutputScale.setSelected(config.fixedOutputScale);
+        this.outputScale.setValue(config.outputScale);
+        this.highQualityDownsample.setSelected(config.highQualityDownsample);
+        this.renderCacheMb.setValue(config.renderCacheMb);
+        this.linesPerPage.setValue(config.linesPerPage);
+        this.dedupeMode.setSelectedItem(config.dedupeMode);
+        this.filmstripRevisions.setValue(config.filmstripRevisions);
+        this.visibleAreaOnly.setSelected(config.visibleAreaOnly);
+        this.diffHunksOnly.setSelected(config.diffHunksOnly);
+        this.diffContextLines.setValue(config.diffContextLines);
+        this.diffContextLines.setEnabled(config.diffHunksOnly);
+        updateOutputScale();
+    }
+
+    private void updateOutputScale() {
+        boolean fixed = fixedOutputScale.isSelected();
+        outputScale.setEnabled(fixed);
+        highQualityDownsample.setEnabled(fixed);
     }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.config;
+
+import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.options.SearchableConfigurable;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CapturePhase;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CaptureStats;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+
+/**
+ * Read-only timings of the recent captures, see {@link CaptureStats}.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public class StatisticsConfigurable implements SearchableConfigurable, Configurable.NoScroll {
+
+    private static final String[] COLUMNS = {"Phase", "Count", "p50 (ms)", "p90 (ms)", "Max (ms)", "Avg pixels", "Avg size"};
+
+    private DefaultTableModel model;
+
+    @Override
+    public @NotNull @NonNls String getId() {
+        return "screenshot.statistics";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Statistics";
+    }
+
+    @Override
+    public @Nullable JComponent createComponent() {
+        model = new DefaultTableModel(COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JBTable table = new JBTable(model);
+
+        JButton refresh = new JButton("Refresh");
+        refresh.addActionListener(e -> refresh());
+        JButton reset = new JButton("Reset");
+        reset.addActionListener(e -> {
+            CaptureStats.reset();
+            refresh();
+        });
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        buttons.add(refresh);
+        buttons.add(reset);
+
+        JPanel panel = new JPanel(new BorderLayout(0, JBUI.scale(8)));
+        panel.add(new JBLabel("Timings of the last captures in this session. Start a Flight Recorder recording for per capture events."), BorderLayout.NORTH);
+        panel.add(new JBScrollPane(table), BorderLayout.CENTER);
+        panel.add(buttons, BorderLayout.SOUTH);
+        refresh();
+        return panel;
+    }
+
+    private void refresh() {
+        model.setRowCount(0);
+        for (CapturePhase phase : CapturePhase.values()) {
+            CaptureStats.Snapshot snapshot = CaptureStats.snapshot(phase);
+            model.addRow(new Object[]{
+                    phase,
+                    snapshot.count(),
+                    String.format("%.1f", snapshot.p50Millis()),
+                    String.format("%.1f", snapshot.p90Millis()),
+                    String.format("%.1f", snapshot.maxMillis()),
+                    snapshot.pixels(),
+                    StringUtil.formatFileSize(snapshot.bytes())
+            });
+        }
+    }
+
+    @Override
+    public boolean isModified() {
+        return false;
+    }
+
+    @Override
+    public void apply() {
+    }
+
+    @Override
+    public void disposeUIResources() {
+        model = null;
+    }
+}
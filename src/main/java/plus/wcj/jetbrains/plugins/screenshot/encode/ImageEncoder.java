@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.encode;
+
+import com.intellij.openapi.extensions.ExtensionPointName;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes saved screenshots into one file format, selected by {@link ScreenshotState#imageFormat}.
+ * <p>
+ * Other plugins can add formats with the {@code plus.wcj.jetbrains.plugins.screenshot.imageEncoder} extension.
+ * The clipboard and streamed captures always use PNG.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public interface ImageEncoder {
+
+    ExtensionPointName<ImageEncoder> EP_NAME = ExtensionPointName.create("plus.wcj.jetbrains.plugins.screenshot.imageEncoder");
+
+    /** Stored in {@link ScreenshotState#imageFormat}. */
+    @NotNull String getId();
+
+    @NotNull String getDisplayName();
+
+    /** File extension without the dot. */
+    @NotNull String getExtension();
+
+    /** Encodes the raster of {@code image}, that is device pixels for HiDPI images. */
+    void encode(@NotNull BufferedImage image, @NotNull ScreenshotState state, @NotNull OutputStream out) throws IOException;
+
+    /** The encoder for {@code id}, PNG if it is not installed (anymore). */
+    static @NotNull ImageEncoder find(@Nullable String id) {
+        ImageEncoder png = null;
+        for (ImageEncoder encoder : EP_NAME.getExtensionList()) {
+            if (encoder.getId().equals(id)) {
+                return encoder;
+            }
+            if (encoder instanceof PngImageEncoder) {
+                png = encoder;
+            }
+        }
+        return png != null ? png : new PngImageEncoder();
+    }
+}
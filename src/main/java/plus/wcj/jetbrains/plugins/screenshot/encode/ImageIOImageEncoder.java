@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.encode;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Base of the formats written by the JDK image writers.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+abstract class ImageIOImageEncoder implements ImageEncoder {
+
+    private static final int COPY_ROWS = 256;
+
+    private final String formatName;
+
+    private final boolean alpha;
+
+    /** @param alpha whether the format keeps the alpha channel, otherwise the image is written as opaque RGB */
+    ImageIOImageEncoder(String formatName, boolean alpha) {
+        this.formatName = formatName;
+        this.alpha = alpha;
+    }
+
+    @Override
+    public void encode(@NotNull BufferedImage image, @NotNull ScreenshotState state, @NotNull OutputStream out) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+        if (!writers.hasNext()) {
+            throw new IOException("No " + formatName + " writer available");
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            configure(param, state);
+            writer.write(null, new IIOImage(raster(image), null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /** Sets format specific options, e.g. the compression quality. */
+    void configure(@NotNull ImageWriteParam param, @NotNull ScreenshotState state) {
+    }
+
+    /** The device pixels of {@code image}, copied into an opaque image for formats without alpha unless it already is one. */
+    private @NotNull BufferedImage raster(BufferedImage image) {
+        Raster raster = image.getRaster();
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        if ((alpha || image.getType() == BufferedImage.TYPE_INT_RGB) && image.getWidth() == width) {
+            return image;
+        }
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage copy = new BufferedImage(width, height, type);
+        Object rows = null;
+        for (int y = 0; y < height; y += COPY_ROWS) {
+            int h = Math.min(COPY_ROWS, height - y);
+            rows = dataElements(image, raster, y, h, rows);
+            copy.getRaster().setDataElements(0, y, width, h, rows);
+        }
+        return copy;
+    }
+
+    /** Rows as packed ARGB ints, the RGB target ignores the alpha bits. */
+    private static Object dataElements(BufferedImage image, Raster raster, int y, int h, @Nullable Object reuse) {
+        int width = raster.getWidth();
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB || image.getType() == BufferedImage.TYPE_INT_RGB) {
+            int[] pixels = reuse instanceof int[] ints && ints.length == width * h ? ints : new int[width * h];
+            return raster.getDataElements(0, y, width, h, pixels);
+        }
+        return image.getRGB(0, y, width, h, reuse instanceof int[] ints && ints.length == width * h ? ints : null, 0, width);
+    }
+}
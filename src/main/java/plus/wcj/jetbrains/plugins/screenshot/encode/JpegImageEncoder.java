@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.encode;
+
+import org.jetbrains.annotations.NotNull;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+
+import javax.imageio.ImageWriteParam;
+
+/**
+ * Lossy and small, with the quality from {@link ScreenshotState#jpegQuality}.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class JpegImageEncoder extends ImageIOImageEncoder {
+
+    public JpegImageEncoder() {
+        super("jpeg", false);
+    }
+
+    @Override
+    public @NotNull String getId() {
+        return "jpeg";
+    }
+
+    @Override
+    public @NotNull String getDisplayName() {
+        return "JPEG";
+    }
+
+    @Override
+    public @NotNull String getExtension() {
+        return "jpg";
+    }
+
+    @Override
+    void configure(@NotNull ImageWriteParam param, @NotNull ScreenshotState state) {
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(state.jpegQuality / 100f);
+    }
+}
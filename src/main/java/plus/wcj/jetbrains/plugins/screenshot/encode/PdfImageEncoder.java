@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.encode;
+
+import com.orsonpdf.PDFDocument;
+import com.orsonpdf.PDFGraphics2D;
+import com.orsonpdf.PDFHints;
+import com.orsonpdf.Page;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * One page of the size of the capture, one user space pixel is one point.
+ * <p>
+ * PDF text without embedded fonts is limited to the 14 standard fonts, which would put the code in the wrong font
+ * and misalign it, so text is written as glyph outlines. They stay sharp at any zoom but cannot be selected.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class PdfImageEncoder implements VectorImageEncoder {
+
+    public static final String ID = "pdf";
+
+    @Override
+    public @NotNull String getId() {
+        return ID;
+    }
+
+    @Override
+    public @NotNull String getDisplayName() {
+        return "PDF";
+    }
+
+    @Override
+    public @NotNull String getExtension() {
+        return "pdf";
+    }
+
+    @Override
+    public @NotNull Recording record(int width, int height) {
+        PDFDocument document = new PDFDocument();
+        Page page = document.createPage(new Rectangle(width, height));
+        PDFGraphics2D graphics = page.getGraphics2D();
+        graphics.setRenderingHint(PDFHints.KEY_DRAW_STRING_TYPE, PDFHints.VALUE_DRAW_STRING_TYPE_VECTOR);
+        return new Recording() {
+            @Override
+            public @NotNull Graphics2D getGraphics() {
+                return graphics;
+            }
+
+            @Override
+            public void write(@NotNull OutputStream out) throws IOException {
+                graphics.dispose();
+                out.write(document.getPDFBytes());
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.encode;
+
+import org.jetbrains.annotations.NotNull;
+import org.jfree.svg.SVGGraphics2D;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Text is written as {@code <text>} elements with the editor font family, so it can be searched and copied.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class SvgImageEncoder implements VectorImageEncoder {
+
+    public static final String ID = "svg";
+
+    @Override
+    public @NotNull String getId() {
+        return ID;
+    }
+
+    @Override
+    public @NotNull String getDisplayName() {
+        return "SVG";
+    }
+
+    @Override
+    public @NotNull String getExtension() {
+        return "svg";
+    }
+
+    @Override
+    public @NotNull Recording record(int width, int height) {
+        SVGGraphics2D graphics = new SVGGraphics2D(width, height);
+        return new Recording() {
+            @Override
+            public @NotNull Graphics2D getGraphics() {
+                return graphics;
+            }
+
+            @Override
+            public void write(@NotNull OutputStream out) throws IOException {
+                String document = graphics.getSVGDocument();
+                graphics.dispose();
+                out.write(document.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+}
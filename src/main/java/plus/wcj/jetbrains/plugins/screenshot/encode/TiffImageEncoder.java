@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.encode;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Uncompressed with alpha, fast to write.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class TiffImageEncoder extends ImageIOImageEncoder {
+
+    public TiffImageEncoder() {
+        super("tiff", true);
+    }
+
+    @Override
+    public @NotNull String getId() {
+        return "tiff";
+    }
+
+    @Override
+    public @NotNull String getDisplayName() {
+        return "TIFF";
+    }
+
+    @Override
+    public @NotNull String getExtension() {
+        return "tiff";
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.encode;
+
+import org.jetbrains.annotations.NotNull;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A format that records drawing calls instead of pixels. Text stays text and there is no raster,
+ * so the file grows with the amount of code rather than with its area and the HiDPI scale.
+ * <p>
+ * Captures from an editor are painted straight into a {@link Recording}, images from elsewhere are embedded as one picture.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public interface VectorImageEncoder extends ImageEncoder {
+
+    /** Starts a picture of {@code width x height} in user space, painted on the EDT. */
+    @NotNull Recording record(int width, int height);
+
+    @Override
+    default void encode(@NotNull BufferedImage image, @NotNull ScreenshotState state, @NotNull OutputStream out) throws IOException {
+        Recording recording = record(image.getWidth(), image.getHeight());
+        recording.getGraphics().drawImage(image, 0, 0, image.getWidth(), image.getHeight(), null);
+        recording.write(out);
+    }
+
+    interface Recording {
+
+        /** Paint into this, it starts with the identity transform in user space. */
+        @NotNull Graphics2D getGraphics();
+
+        /** Writes what was painted and disposes the graphics, may be called from any thread once painting is done. */
+        void write(@NotNull OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.export;
+
+/**
+ * What to do when a saved screenshot is identical to an earlier one in the same output directory, see {@link DedupeStore}.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public enum DedupeMode {
+
+    OFF("Always write a new file"),
+
+    /** The notification points at the earlier file, nothing is written. */
+    REUSE("Reuse the earlier file"),
+
+    /** A new name as usual, hard linked to the earlier file so it takes no space. Copied where links are not supported. */
+    LINK("Hard link the earlier file");
+
+    public final String description;
+
+    DedupeMode(String description) {
+        this.description = description;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
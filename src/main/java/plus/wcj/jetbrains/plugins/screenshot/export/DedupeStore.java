@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.export;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content addressed index of the screenshots in an output directory, so that pressing the shortcut again on the same
+ * code does not fill the directory with copies.
+ * <p>
+ * Images are hashed by their raster before encoding, which skips the encoder for a duplicate. Streamed and vector
+ * captures have no raster, their encoded bytes are hashed while they are written and a duplicate file is dropped
+ * afterwards. The index is a text file of {@code <sha-256> <file name>} lines in the output directory, so it is
+ * shared by everyone who saves there. Entries whose file was deleted are ignored.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class DedupeStore {
+
+    private static final Logger LOG = Logger.getInstance(DedupeStore.class);
+
+    static final String INDEX_FILE = ".screenshot-index";
+
+    private static final int MAX_NAME_ATTEMPTS = 1000;
+
+    private static final int ROWS = 256;
+
+    /** Parsed index files by directory, reloaded when the file changes. */
+    private static final Map<Path, Index> INDEXES = new HashMap<>();
+
+    private DedupeStore() {
+    }
+
+    private record Index(long modified, long size, Map<String, String> files) {
+    }
+
+    /** SHA-256 of the device pixels of {@code image} as {@code format} would save them. */
+    public static @NotNull String hash(@NotNull BufferedImage image, @NotNull String format) {
+        MessageDigest digest = newDigest("raster:" + format);
+        Raster raster = image.getRaster();
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        digest.update(ByteBuffer.allocate(12).putInt(width).putInt(height).putInt(image.getType()).flip());
+        if (image.getColorModel() instanceof IndexColorModel colorModel) {
+            int[] palette = new int[colorModel.getMapSize()];
+            colorModel.getRGBs(palette);
+            update(digest, palette, palette.length);
+        }
+        DataBuffer buffer = raster.getDataBuffer();
+        if (buffer instanceof DataBufferInt && raster.getNumDataElements() == 1) {
+            int[] rows = new int[width * Math.min(ROWS, height)];
+            for (int y = 0; y < height; y += ROWS) {
+                int h = Math.min(ROWS, height - y);
+                raster.getDataElements(0, y, width, h, rows);
+                update(digest, rows, width * h);
+            }
+        } else if (buffer instanceof DataBufferByte && raster.getNumDataElements() == 1) {
+            byte[] rows = new byte[width * Math.min(ROWS, height)];
+            for (int y = 0; y < height; y += ROWS) {
+                int h = Math.min(ROWS, height - y);
+                raster.getDataElements(0, y, width, h, rows);
+                digest.update(rows, 0, width * h);
+            }
+        } else {
+            int[] rows = new int[width * Math.min(ROWS, height)];
+            for (int y = 0; y < height; y += ROWS) {
+                int h = Math.min(ROWS, height - y);
+                image.getRGB(0, y, width, h, rows, 0, width);
+                update(digest, rows, width * h);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** A digest for encoded bytes, fed while the file is written, e.g. through a {@link java.security.DigestOutputStream}. */
+    public static @NotNull MessageDigest newDigest(@NotNull String format) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(format.getBytes(StandardCharsets.UTF_8));
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static @NotNull String hex(@NotNull MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, int[] values, int count) {
+        ByteBuffer bytes = ByteBuffer.allocate(count * 4);
+        bytes.asIntBuffer().put(values, 0, count);
+        digest.update(bytes);
+    }
+
+    /** The earlier file in {@code dir} with this hash, {@code null} if there is none or it was deleted. */
+    public static synchronized @Nullable Path find(@NotNull Path dir, @NotNull String hash) {
+        String name = load(dir).files().get(hash);
+        if (name == null) {
+            return null;
+        }
+        Path file = dir.resolve(name);
+        try {
+            return Files.size(file) > 0 ? file : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Adds {@code file} to the index of its directory. */
+    public static synchronized void remember(@NotNull String hash, @NotNull Path file) {
+        Path dir = file.getParent();
+        try {
+            Files.writeString(dir.resolve(INDEX_FILE), hash + " " + file.getFileName() + "\n", StandardCharsets.UTF_8,
+                              StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            load(dir).files().put(hash, file.getFileName().toString());
+        } catch (IOException e) {
+            // the screenshot itself was saved, it is only not found again
+            LOG.warn("Cannot update " + dir.resolve(INDEX_FILE), e);
+        }
+    }
+
+    /**
+     * For a file whose bytes were hashed while it was written: replaces it with the earlier file of the same content
+     * as {@link #reuse} does, or remembers it as the first of its content.
+     *
+     * @return what replaced {@code written}, {@code null} if it was kept
+     */
+    public static @Nullable Path replaceDuplicate(@NotNull Path written, @NotNull String hash, @NotNull DedupeMode mode,
+                                                  @NotNull String baseName, @NotNull String extension) throws IOException {
+        Path earlier = find(written.getParent(), hash);
+        if (earlier == null || earlier.equals(written)) {
+            remember(hash, written);
+            return null;
+        }
+        Files.delete(written);
+        return reuse(earlier, mode, baseName, extension);
+    }
+
+    /**
+     * Applies {@code mode} to a duplicate of {@code existing}: the earlier file itself for {@link DedupeMode#REUSE},
+     * otherwise a new {@code <baseName>.<extension>} that is a hard link to it, or a copy where links are not supported.
+     */
+    public static @NotNull Path reuse(@NotNull Path existing, @NotNull DedupeMode mode, @NotNull String baseName,
+                                      @NotNull String extension) throws IOException {
+        if (mode != DedupeMode.LINK) {
+            return existing;
+        }
+        Path dir = existing.getParent();
+        for (int i = 0; i < MAX_NAME_ATTEMPTS; i++) {
+            Path target = dir.resolve((i == 0 ? baseName : baseName + "_" + i) + "." + extension);
+            try {
+                return Files.createLink(target, existing);
+            } catch (FileAlreadyExistsException ignored) {
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                // e.g. FAT drives and some network shares
+                return Files.copy(existing, target);
+            }
+        }
+        throw new FileAlreadyExistsException(dir.resolve(baseName + "." + extension).toString());
+    }
+
+    private static Index load(Path dir) {
+        Path file = dir.resolve(INDEX_FILE);
+        long modified = 0, size = 0;
+        try {
+            modified = Files.getLastModifiedTime(file).toMillis();
+            size = Files.size(file);
+        } catch (IOException ignored) {
+        }
+        Index index = INDEXES.get(dir);
+        if (index != null && index.modified() == modified && index.size() == size) {
+            return index;
+        }
+        Map<String, String> files = new HashMap<>();
+        if (size > 0) {
+            try {
+                List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    int space = line.indexOf(' ');
+                    if (space > 0) {
+                        files.put(line.substring(0, space), line.substring(space + 1));
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warn("Cannot read " + file, e);
+            }
+        }
+        index = new Index(modified, size, files);
+        INDEXES.put(dir, index);
+        return index;
+    }
+}
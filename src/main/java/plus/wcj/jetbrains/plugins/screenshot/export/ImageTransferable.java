@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.export;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+
+/**
+ * Clipboard content backed by PNG bytes that were encoded once in the background.
+ * <p>
+ * {@code image/png} consumers get the bytes as they are, the raster for {@link DataFlavor#imageFlavor} is only
+ * softly reachable and decoded again when needed. Everything is dropped once another application takes the clipboard.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class ImageTransferable implements Transferable, ClipboardOwner {
+
+    public static final DataFlavor PNG_FLAVOR = new DataFlavor("image/png; class=java.io.InputStream", "PNG Image");
+
+    private static final DataFlavor[] FLAVORS = {PNG_FLAVOR, DataFlavor.imageFlavor};
+
+    private volatile byte[] png;
+
+    private volatile SoftReference<BufferedImage> image;
+
+    /** @param image the raster {@code png} was encoded from, kept only as long as memory allows */
+    public ImageTransferable(@Nullable BufferedImage image, @NotNull byte[] png) {
+        this.png = png;
+        this.image = image == null ? null : new SoftReference<>(image);
+    }
+
+    @Override
+    public DataFlavor[] getTransferDataFlavors() {
+        return FLAVORS.clone();
+    }
+
+    @Override
+    public boolean isDataFlavorSupported(DataFlavor flavor) {
+        return PNG_FLAVOR.equals(flavor) || DataFlavor.imageFlavor.equals(flavor);
+    }
+
+    @NotNull
+    @Override
+    public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+        byte[] bytes = png;
+        if (bytes == null) {
+            throw new IOException("The screenshot is no longer on the clipboard");
+        }
+        if (PNG_FLAVOR.equals(flavor)) {
+            return new ByteArrayInputStream(bytes);
+        }
+        if (DataFlavor.imageFlavor.equals(flavor)) {
+            return image(bytes);
+        }
+        throw new UnsupportedFlavorException(flavor);
+    }
+
+    private BufferedImage image(byte[] bytes) throws IOException {
+        SoftReference<BufferedImage> reference = image;
+        BufferedImage result = reference == null ? null : reference.get();
+        if (result == null) {
+            result = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (result == null) {
+                throw new IOException("Failed to decode the screenshot");
+            }
+            image = new SoftReference<>(result);
+        }
+        return result;
+    }
+
+    @Override
+    public void lostOwnership(Clipboard clipboard, Transferable contents) {
+        png = null;
+        image = null;
+    }
+}
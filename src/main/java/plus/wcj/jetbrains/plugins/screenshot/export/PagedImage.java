@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.export;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A capture that is saved as several files, one complete image per page.
+ * <p>
+ * {@link #paintPage(int)} and {@link #close()} are called on the EDT, {@link #finish(BufferedImage)} on the
+ * worker that encodes the page. Unlike the bands of a {@link StreamedImage} every page is a new image.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public interface PagedImage extends AutoCloseable {
+
+    int getPageCount();
+
+    BufferedImage paintPage(int index);
+
+    /** Work that does not need the EDT, e.g. downsampling or quantizing the painted page. */
+    default BufferedImage finish(BufferedImage page) {
+        return page;
+    }
+
+    /** Restores whatever editor state was changed for painting. */
+    @Override
+    void close();
+}
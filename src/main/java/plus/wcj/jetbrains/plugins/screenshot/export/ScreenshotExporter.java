@@ -0,0 +1,503 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.export;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import plus.wcj.jetbrains.plugins.screenshot.ScreenshotNotifier;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+import plus.wcj.jetbrains.plugins.screenshot.encode.ImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.encode.PngImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.encode.VectorImageEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.png.PngEncoder;
+import plus.wcj.jetbrains.plugins.screenshot.png.PngStreamWriter;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CapturePhase;
+import plus.wcj.jetbrains.plugins.screenshot.stats.CaptureStats;
+import plus.wcj.jetbrains.plugins.screenshot.stats.PhaseTimer;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs everything after painting in the background: clipboard, PNG encoding, disk write and the notification.
+ * Files are written by the selected {@link ImageEncoder}, the clipboard gets PNG from the multi-core {@link PngEncoder}.
+ * Images that are too large for one raster are painted and encoded band by band, see {@link StreamedImage}.
+ * <p>
+ * At most {@link #MAX_PENDING_EXPORTS} exports are in flight, further captures are rejected instead of queueing
+ * more full size images on the heap.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class ScreenshotExporter {
+
+    private static final int MAX_PENDING_EXPORTS = 2;
+
+    private static final Semaphore PENDING_EXPORTS = new Semaphore(MAX_PENDING_EXPORTS);
+
+    private ScreenshotExporter() {
+    }
+
+    /**
+     * Must be called on the EDT once the image has been painted.
+     *
+     * @param detail extra line for the notification, e.g. how the capture was made, may be empty
+     */
+    public static void export(@Nullable Project project, @NotNull BufferedImage image, @NotNull ScreenshotState state,
+                              @NotNull String fileName, @NotNull String detail) {
+        run(project, () -> new ImageExportTask(project, image, null, state, fileName, detail), null);
+    }
+
+    /**
+     * Must be called on the EDT once {@code recording} has been painted, it is saved in the selected vector format.
+     *
+     * @param image the clipboard content, {@code null} to leave the clipboard alone
+     */
+    public static void export(@Nullable Project project, @Nullable BufferedImage image, @NotNull VectorImageEncoder.Recording recording,
+                              @NotNull ScreenshotState state, @NotNull String fileName, @NotNull String detail) {
+        run(project, () -> new ImageExportTask(project, image, recording, state, fileName, detail), null);
+    }
+
+    /**
+     * Must be called on the EDT, takes ownership of {@code pages}: bands are painted on the EDT one at a time
+     * and streamed into one PNG file per page, {@link StreamedImage#close()} is called once the export has finished.
+     */
+    public static void export(@Nullable Project project, @NotNull List<? extends StreamedImage> pages, @NotNull ScreenshotState state,
+                              @NotNull String fileName, @NotNull String detail) {
+        run(project, () -> new StreamedExportTask(project, pages, state, fileName, detail), () -> pages.forEach(StreamedImage::close));
+    }
+
+    /**
+     * Must be called on the EDT, takes ownership of {@code pages}: pages are painted on the EDT one at a time,
+     * encoded in parallel and saved as one file each, {@link PagedImage#close()} is called once the export has finished.
+     */
+    public static void export(@Nullable Project project, @NotNull PagedImage pages, @NotNull ScreenshotState state,
+                              @NotNull String fileName, @NotNull String detail) {
+        run(project, () -> new PagedExportTask(project, pages, state, fileName, detail), pages::close);
+    }
+
+    /**
+     * Starts the task unless {@link #MAX_PENDING_EXPORTS} exports are in flight. The task releases its slot when it
+     * finishes; if it never starts, the slot is released here and {@code close} frees what the task would have owned.
+     */
+    private static void run(@Nullable Project project, Supplier<? extends ExportTask> task, @Nullable Runnable close) {
+        if (!PENDING_EXPORTS.tryAcquire()) {
+            if (close != null) {
+                close.run();
+            }
+            ScreenshotNotifier.notifyError(project, "Previous screenshots are still being exported, please try again later.");
+            return;
+        }
+        try {
+            ProgressManager.getInstance().run(task.get());
+        } catch (RuntimeException | Error e) {
+            PENDING_EXPORTS.release();
+            if (close != null) {
+                close.run();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes {@code page} into {@code <dir>/<name>.png} band by band, every band is painted on the EDT.
+     * Call on a worker, the page stays open.
+     *
+     * @param digest hashes the encoded bytes if not {@code null}
+     * @param onBand called with the index of every band before it is painted, e.g. for progress
+     */
+    public static StreamedFile writeStreamed(@NotNull Path dir, @NotNull String name, @NotNull StreamedImage page, @NotNull PngEncoder encoder,
+                                             @Nullable MessageDigest digest, @NotNull ProgressIndicator indicator,
+                                             @NotNull IntConsumer onBand) throws IOException {
+        long start = System.nanoTime();
+        long[] paintNanos = new long[1];
+        Path out = ScreenshotFiles.write(dir, name, "png", indicator, target -> {
+            OutputStream stream = digest != null ? new DigestOutputStream(target, digest) : target;
+            try (PngStreamWriter png = encoder.newWriter(stream, page.getWidth(), page.getHeight(), page.hasAlpha())) {
+                int bandCount = page.getBandCount();
+                for (int i = 0; i < bandCount; i++) {
+                    indicator.checkCanceled();
+                    onBand.accept(i);
+                    int index = i;
+                    long paintStart = System.nanoTime();
+                    BufferedImage band = ExportWorkers.onEdt(() -> page.paintBand(index));
+                    paintNanos[0] += System.nanoTime() - paintStart;
+                    png.writeImage(band);
+                }
+            }
+        });
+        // bands are painted and encoded in turns, so both phases are summed up per file
+        long pixels = (long) page.getWidth() * page.getHeight();
+        long size = Files.size(out);
+        CaptureStats.record(CapturePhase.PAINT, paintNanos[0], pixels, 0);
+        CaptureStats.record(CapturePhase.ENCODE, System.nanoTime() - start - paintNanos[0], pixels, size);
+        return new StreamedFile(out, paintNanos[0], size);
+    }
+
+    /** A file written by {@link #writeStreamed}, with the time spent painting its bands. */
+    public record StreamedFile(Path file, long paintNanos, long bytes) {
+    }
+
+    private abstract static class ExportTask extends Task.Backgroundable {
+
+        final boolean clipboard;
+
+        final boolean save;
+
+        final String outputDir;
+
+        final String fileName;
+
+        final ScreenshotState state;
+
+        /** PNG for the clipboard and streamed captures. */
+        final PngEncoder encoder;
+
+        /** The selected format for saved files. */
+        final ImageEncoder imageEncoder;
+
+        final String detail;
+
+        File file;
+
+        /** What the saved file cost, for the notification. */
+        String format;
+
+        long encodeNanos, encodedBytes;
+
+        /** Files that were identical to an earlier capture and not written again. */
+        int duplicates;
+
+        ExportTask(@Nullable Project project, boolean clipboard, ScreenshotState state, String fileName, String detail) {
+            super(project, "Exporting screenshot", true);
+            this.clipboard = clipboard;
+            this.save = state.save;
+            this.outputDir = state.outputDir;
+            this.fileName = fileName;
+            this.state = state;
+            this.encoder = new PngEncoder(state.pngCompressionLevel, state.pngFilter);
+            this.imageEncoder = ImageEncoder.find(state.imageFormat);
+            this.detail = detail;
+        }
+
+        @Override
+        public void onSuccess() {
+            String report = detail;
+            if (format != null) {
+                String encoded = String.format("%s, %s in %d ms", format, StringUtil.formatFileSize(encodedBytes), encodeNanos / 1_000_000);
+                if (duplicates > 0) {
+                    encoded += state.dedupeMode == DedupeMode.LINK ? ", linked to an identical earlier capture" : ", identical to an earlier capture";
+                }
+                report = report.isEmpty() ? encoded : report + "\n" + encoded;
+            }
+            ScreenshotNotifier.notifyInfo(getProject(), clipboard, save, file, report);
+        }
+
+        /** Replaces a freshly written duplicate with the earlier file, or remembers it as the first of its content. */
+        Path deduplicate(Path written, String hash, String baseName, String extension) throws IOException {
+            Path earlier = DedupeStore.replaceDuplicate(written, hash, state.dedupeMode, baseName, extension);
+            if (earlier == null) {
+                return written;
+            }
+            duplicates++;
+            return earlier;
+        }
+
+        @Override
+        public void onThrowable(@NotNull Throwable error) {
+            Messages.showErrorDialog("Failed to export screenshot: " + error.getMessage(), "Error");
+        }
+
+        @Override
+        public void onFinished() {
+            PENDING_EXPORTS.release();
+        }
+    }
+
+    private static final class ImageExportTask extends ExportTask {
+
+        private final BufferedImage image;
+
+        /** Saved instead of {@link #image} if not {@code null}. */
+        private final VectorImageEncoder.Recording recording;
+
+        ImageExportTask(@Nullable Project project, @Nullable BufferedImage image, @Nullable VectorImageEncoder.Recording recording,
+                        ScreenshotState state, String fileName, String detail) {
+            super(project, state.clipboard && image != null, state, fileName, detail);
+            this.image = image;
+            this.recording = recording;
+        }
+
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+            indicator.setIndeterminate(true);
+            try {
+                // with the clipboard enabled the image is encoded once and the bytes are reused for a PNG file
+                byte[] png = null;
+                long pngNanos = 0;
+                if (clipboard) {
+                    indicator.setText("Copying screenshot to clipboard");
+                    long start = System.nanoTime();
+                    try (PhaseTimer encode = CaptureStats.start(CapturePhase.ENCODE)) {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        encoder.encode(image, bytes);
+                        png = bytes.toByteArray();
+                        encode.image(image).bytes(png.length);
+                    }
+                    pngNanos = System.nanoTime() - start;
+                    try (PhaseTimer ignored = CaptureStats.start(CapturePhase.CLIPBOARD)) {
+                        ImageTransferable transferable = new ImageTransferable(image, png);
+                        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(transferable, transferable);
+                    }
+                }
+                if (save) {
+                    indicator.checkCanceled();
+                    indicator.setText("Saving screenshot");
+                    Path dir = Paths.get(outputDir);
+                    String baseName = ScreenshotFiles.baseName(fileName);
+                    long start = System.nanoTime();
+                    format = imageEncoder.getDisplayName();
+                    // identical pixels are found before anything is encoded, recordings only once they are written
+                    boolean dedupe = state.dedupeMode != DedupeMode.OFF;
+                    String hash = dedupe && recording == null ? DedupeStore.hash(image, imageEncoder.getId() + ":" + state.jpegQuality) : null;
+                    Path earlier = hash != null ? DedupeStore.find(dir, hash) : null;
+                    if (earlier != null) {
+                        Path out = DedupeStore.reuse(earlier, state.dedupeMode, baseName, imageEncoder.getExtension());
+                        file = out.toFile();
+                        encodedBytes = Files.size(out);
+                        encodeNanos = System.nanoTime() - start;
+                        duplicates++;
+                        return;
+                    }
+                    MessageDigest digest = dedupe && hash == null ? DedupeStore.newDigest(imageEncoder.getId()) : null;
+
+                    byte[] encoded = imageEncoder instanceof PngImageEncoder && recording == null ? png : null;
+                    // pre-encoded bytes are only written, otherwise the image is encoded straight into the file
+                    try (PhaseTimer write = CaptureStats.start(encoded != null ? CapturePhase.WRITE : CapturePhase.ENCODE)) {
+                        Path out = ScreenshotFiles.write(dir, baseName, imageEncoder.getExtension(), indicator, target -> {
+                            OutputStream stream = digest != null ? new DigestOutputStream(target, digest) : target;
+                            if (encoded != null) {
+                                stream.write(encoded);
+                            } else if (recording != null) {
+                                recording.write(stream);
+                            } else {
+                                imageEncoder.encode(image, state, stream);
+                            }
+                        });
+                        if (hash != null) {
+                            DedupeStore.remember(hash, out);
+                        } else if (digest != null) {
+                            out = deduplicate(out, DedupeStore.hex(digest), baseName, imageEncoder.getExtension());
+                        }
+                        file = out.toFile();
+                        encodedBytes = Files.size(out);
+                        if (image != null) {
+                            write.image(image);
+                        }
+                        write.bytes(encodedBytes);
+                    }
+                    encodeNanos = encoded != null ? pngNanos : System.nanoTime() - start;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+    }
+
+    /** Streamed images never reach the clipboard, they only exist band by band and are always saved as PNG. */
+    private static final class StreamedExportTask extends ExportTask {
+
+        private final List<? extends StreamedImage> pages;
+
+        StreamedExportTask(@Nullable Project project, List<? extends StreamedImage> pages, ScreenshotState state, String fileName, String detail) {
+            super(project, false, state, fileName, detail);
+            this.pages = pages;
+        }
+
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+            indicator.setIndeterminate(false);
+            indicator.setText("Saving screenshot");
+            String baseName = ScreenshotFiles.baseName(fileName);
+            format = "PNG";
+            int totalBands = pages.stream().mapToInt(StreamedImage::getBandCount).sum();
+            int bandsDone = 0;
+            try {
+                for (int p = 0; p < pages.size(); p++) {
+                    StreamedImage page = pages.get(p);
+                    String name = pages.size() == 1 ? baseName : String.format("%s_p%02d", baseName, p + 1);
+                    int firstBand = bandsDone;
+                    long start = System.nanoTime();
+                    // there is no raster to hash up front, the encoded bytes are hashed on their way to the file
+                    MessageDigest digest = state.dedupeMode != DedupeMode.OFF ? DedupeStore.newDigest(PngImageEncoder.ID) : null;
+                    StreamedFile streamed = writeStreamed(Paths.get(outputDir), name, page, encoder, digest, indicator,
+                                                          band -> indicator.setFraction((double) (firstBand + band) / totalBands));
+                    Path out = streamed.file();
+                    if (digest != null) {
+                        out = deduplicate(out, DedupeStore.hex(digest), name, "png");
+                    }
+                    encodeNanos += System.nanoTime() - start - streamed.paintNanos();
+                    encodedBytes += streamed.bytes();
+                    bandsDone += page.getBandCount();
+                    if (file == null) {
+                        file = out.toFile();
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void onFinished() {
+            try {
+                pages.forEach(StreamedImage::close);
+            } finally {
+                super.onFinished();
+            }
+        }
+    }
+
+    /**
+     * Pages are painted on the EDT one after another while up to {@link ExportWorkers#COUNT} of them are encoded in
+     * the selected format at the same time, into {@code <name>_p01}, {@code <name>_p02} and so on.
+     */
+    private static final class PagedExportTask extends ExportTask {
+
+        private final PagedImage pages;
+
+        PagedExportTask(@Nullable Project project, PagedImage pages, ScreenshotState state, String fileName, String detail) {
+            super(project, false, state, fileName, detail);
+            this.pages = pages;
+        }
+
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+            indicator.setIndeterminate(false);
+            indicator.setText("Saving screenshot");
+            Path dir = Paths.get(outputDir);
+            String baseName = ScreenshotFiles.baseName(fileName);
+            int pageCount = pages.getPageCount();
+            Path[] written = new Path[pageCount];
+            AtomicLong bytes = new AtomicLong();
+            AtomicInteger reused = new AtomicInteger();
+            long start = System.nanoTime();
+            ExecutorService pool = AppExecutorUtil.createBoundedApplicationPoolExecutor("Screenshot Pro Pages", ExportWorkers.COUNT);
+            Semaphore slots = new Semaphore(ExportWorkers.COUNT);
+            List<Future<?>> pending = new ArrayList<>();
+            try {
+                for (int p = 0; p < pageCount; p++) {
+                    indicator.checkCanceled();
+                    indicator.setFraction((double) p / pageCount);
+                    ExportWorkers.acquire(slots, indicator);
+                    BufferedImage painted;
+                    try {
+                        painted = paintPage(p);
+                    } catch (RuntimeException e) {
+                        slots.release();
+                        throw e;
+                    }
+                    int index = p;
+                    pending.add(pool.submit(() -> {
+                        try {
+                            written[index] = save(dir, String.format("%s_p%02d", baseName, index + 1), pages.finish(painted), indicator, bytes, reused);
+                        } finally {
+                            slots.release();
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : pending) {
+                    ExportWorkers.await(future, indicator);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            file = written[0].toFile();
+            format = imageEncoder.getDisplayName();
+            encodedBytes = bytes.get();
+            encodeNanos = System.nanoTime() - start;
+            duplicates = reused.get();
+        }
+
+        private BufferedImage paintPage(int index) {
+            return ExportWorkers.onEdt(() -> {
+                try (PhaseTimer paint = CaptureStats.start(CapturePhase.PAINT)) {
+                    BufferedImage page = pages.paintPage(index);
+                    paint.image(page);
+                    return page;
+                }
+            });
+        }
+
+        /** Runs on a worker, pages identical to an earlier capture are not encoded. */
+        private Path save(Path dir, String name, BufferedImage page, ProgressIndicator indicator,
+                          AtomicLong bytes, AtomicInteger reused) throws IOException {
+            String hash = state.dedupeMode != DedupeMode.OFF ? DedupeStore.hash(page, imageEncoder.getId() + ":" + state.jpegQuality) : null;
+            Path earlier = hash != null ? DedupeStore.find(dir, hash) : null;
+            if (earlier != null) {
+                reused.incrementAndGet();
+                return DedupeStore.reuse(earlier, state.dedupeMode, name, imageEncoder.getExtension());
+            }
+            try (PhaseTimer encode = CaptureStats.start(CapturePhase.ENCODE)) {
+                Path out = ScreenshotFiles.write(dir, name, imageEncoder.getExtension(), indicator, stream -> imageEncoder.encode(page, state, stream));
+                if (hash != null) {
+                    DedupeStore.remember(hash, out);
+                }
+                long size = Files.size(out);
+                bytes.addAndGet(size);
+                encode.image(page).bytes(size);
+                return out;
+            }
+        }
+
+        @Override
+        public void onFinished() {
+            try {
+                pages.close();
+            } finally {
+                super.onFinished();
+            }
+        }
+    }
+}
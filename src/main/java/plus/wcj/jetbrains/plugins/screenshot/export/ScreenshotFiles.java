@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.export;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes exported images next to their final location and moves them into place,
+ * so a half written file is never visible in the output directory.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class ScreenshotFiles {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    private static final int MAX_NAME_ATTEMPTS = 1000;
+
+    private ScreenshotFiles() {
+    }
+
+    /** Writes one image payload to the file created by {@link #write(Path, String, String, ProgressIndicator, ImageWriter)}. */
+    @FunctionalInterface
+    public interface ImageWriter {
+        void write(@NotNull OutputStream out) throws IOException;
+    }
+
+    /** {@code <fileName>_<timestamp>}, the timestamp has millisecond precision. */
+    public static String baseName(@NotNull String fileName) {
+        return String.format("%s_%s", fileName, TIMESTAMP.format(LocalDateTime.now()));
+    }
+
+    /**
+     * Reserves a unique {@code <baseName>.<extension>} in {@code dir}, writes the payload into a
+     * temporary sibling and atomically moves it over the reserved name.
+     */
+    public static Path write(@NotNull Path dir, @NotNull String baseName, @NotNull String extension,
+                             @NotNull ProgressIndicator indicator, @NotNull ImageWriter writer) throws IOException {
+        Files.createDirectories(dir);
+        Path target = reserve(dir, baseName, extension);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(dir, "." + baseName + "_", ".tmp");
+            try (OutputStream out = new CancellableOutputStream(Files.newOutputStream(temp), indicator)) {
+                writer.write(out);
+            }
+            indicator.checkCanceled();
+            move(temp, target);
+            return target;
+        } catch (IOException | RuntimeException e) {
+            // ProcessCanceledException is a RuntimeException, clean up both files on cancel as well
+            if (temp != null) {
+                Files.deleteIfExists(temp);
+            }
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    /** Creates an empty placeholder so that two captures finishing in the same millisecond never share a name. */
+    static Path reserve(Path dir, String baseName, String extension) throws IOException {
+        for (int i = 0; i < MAX_NAME_ATTEMPTS; i++) {
+            String name = i == 0 ? baseName : baseName + "_" + i;
+            try {
+                return Files.createFile(dir.resolve(name + "." + extension));
+            } catch (FileAlreadyExistsException ignored) {
+            }
+        }
+        throw new FileAlreadyExistsException(dir.resolve(baseName + "." + extension).toString());
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Lets a cancel in the progress indicator interrupt a long running encoder between two writes. */
+    private static final class CancellableOutputStream extends FilterOutputStream {
+
+        private final ProgressIndicator indicator;
+
+        CancellableOutputStream(OutputStream out, ProgressIndicator indicator) {
+            super(new BufferedOutputStream(out, 1 << 16));
+            this.indicator = indicator;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            indicator.checkCanceled();
+            out.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.export;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * An image that is painted in horizontal bands of device pixels instead of one raster.
+ * <p>
+ * {@link #paintBand(int)} and {@link #close()} are called on the EDT, the returned band is read by the
+ * exporter in the background and may be reused by the next {@link #paintBand(int)} call.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public interface StreamedImage extends AutoCloseable {
+
+    /** Width in device pixels. */
+    int getWidth();
+
+    /** Height in device pixels, the sum of the raster heights of all bands. */
+    int getHeight();
+
+    int getBandCount();
+
+    /** Whether the bands carry an alpha channel worth encoding. */
+    default boolean hasAlpha() {
+        return true;
+    }
+
+    BufferedImage paintBand(int index);
+
+    /** Restores whatever editor state was changed for painting. */
+    @Override
+    void close();
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.png;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assembles an animated PNG from frames that were encoded as standalone PNGs, e.g. concurrently by {@link PngEncoder}.
+ * The compressed data of every frame is copied over as it is, only the chunks around it change.
+ * <p>
+ * The first frame is the default image and covers the whole canvas. Every later frame covers only the rectangle
+ * that changed and is drawn over the previous one, so unchanged code costs nothing. Indexed frames share the palette
+ * of the first frame, as an animated PNG has only one.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class ApngWriter {
+
+    private static final int DISPOSE_OP_NONE = 0;
+
+    private static final int BLEND_OP_SOURCE = 0;
+
+    private ApngWriter() {
+    }
+
+    /**
+     * @param x   left of the frame on the canvas in pixels
+     * @param y   top of the frame on the canvas in pixels
+     * @param png a complete PNG of the frame, all frames must have the colour type, bit depth and palette of the first one
+     */
+    public record Frame(int x, int y, byte[] png) {
+    }
+
+    /** Writes the frames as an endlessly looping animation that shows every frame for {@code delayMillis}. */
+    public static void write(OutputStream out, List<Frame> frames, int delayMillis) throws IOException {
+        if (frames.isEmpty()) {
+            throw new IllegalArgumentException("An animation needs at least one frame");
+        }
+        Png first = Png.parse(frames.get(0).png());
+        if (frames.get(0).x() != 0 || frames.get(0).y() != 0) {
+            throw new IllegalArgumentException("The first frame must cover the canvas");
+        }
+        PngStreamWriter.ChunkOutputStream chunks = new PngStreamWriter.ChunkOutputStream(out);
+        chunks.out.write(PngStreamWriter.SIGNATURE);
+        chunks.writeChunk("IHDR", first.data, first.ihdr, 13);
+        if (first.plte >= 0) {
+            chunks.writeChunk("PLTE", first.data, first.plte, first.length(first.plte));
+        }
+        if (first.trns >= 0) {
+            chunks.writeChunk("tRNS", first.data, first.trns, first.length(first.trns));
+        }
+
+        byte[] actl = new byte[8];
+        PngStreamWriter.putInt(actl, 0, frames.size());
+        PngStreamWriter.putInt(actl, 4, 0);
+        chunks.writeChunk("acTL", actl, 0, actl.length);
+
+        int sequence = 0;
+        for (int i = 0; i < frames.size(); i++) {
+            Frame frame = frames.get(i);
+            Png png = i == 0 ? first : Png.parse(frame.png());
+            if (png.data[png.ihdr + 8] != first.data[first.ihdr + 8] || png.data[png.ihdr + 9] != first.data[first.ihdr + 9]) {
+                throw new IllegalArgumentException("Frame " + i + " has a different pixel format than the first frame");
+            }
+            if (!png.sameChunk(png.plte, first, first.plte) || !png.sameChunk(png.trns, first, first.trns)) {
+                throw new IllegalArgumentException("Frame " + i + " has a different palette than the first frame");
+            }
+            if (frame.x() + png.width() > first.width() || frame.y() + png.height() > first.height()) {
+                throw new IllegalArgumentException("Frame " + i + " does not fit on the canvas");
+            }
+            byte[] fctl = new byte[26];
+            PngStreamWriter.putInt(fctl, 0, sequence++);
+            PngStreamWriter.putInt(fctl, 4, png.width());
+            PngStreamWriter.putInt(fctl, 8, png.height());
+            PngStreamWriter.putInt(fctl, 12, frame.x());
+            PngStreamWriter.putInt(fctl, 16, frame.y());
+            fctl[20] = (byte) (delayMillis >>> 8);
+            fctl[21] = (byte) delayMillis;
+            fctl[22] = (byte) (1000 >>> 8);
+            fctl[23] = (byte) 1000;
+            fctl[24] = DISPOSE_OP_NONE;
+            fctl[25] = BLEND_OP_SOURCE;
+            chunks.writeChunk("fcTL", fctl, 0, fctl.length);
+
+            for (int c = 0; c < png.idat.size(); c += 2) {
+                int offset = png.idat.get(c);
+                int length = png.idat.get(c + 1);
+                if (i == 0) {
+                    chunks.writeChunk("IDAT", png.data, offset, length);
+                } else {
+                    byte[] fdat = new byte[length + 4];
+                    PngStreamWriter.putInt(fdat, 0, sequence++);
+                    System.arraycopy(png.data, offset, fdat, 4, length);
+                    chunks.writeChunk("fdAT", fdat, 0, fdat.length);
+                }
+            }
+        }
+        chunks.writeChunk("IEND", new byte[0], 0, 0);
+        chunks.out.flush();
+    }
+
+    /** Where the header, the palette and the image data of a standalone PNG are, without copying it, -1 if a chunk is missing. */
+    private record Png(byte[] data, int ihdr, int plte, int trns, List<Integer> idat) {
+
+        static Png parse(byte[] data) throws IOException {
+            if (data.length < 8 || !Arrays.equals(data, 0, 8, PngStreamWriter.SIGNATURE, 0, 8)) {
+                throw new IOException("Not a PNG");
+            }
+            int ihdr = -1, plte = -1, trns = -1;
+            List<Integer> idat = new ArrayList<>();
+            int position = 8;
+            while (position + 12 <= data.length) {
+                int length = readInt(data, position);
+                String type = new String(data, position + 4, 4, StandardCharsets.US_ASCII);
+                int start = position + 8;
+                if (length < 0 || start + length + 4 > data.length) {
+                    throw new IOException("Truncated PNG chunk " + type);
+                }
+                if (type.equals("IHDR")) {
+                    ihdr = start;
+                } else if (type.equals("PLTE")) {
+                    plte = start;
+                } else if (type.equals("tRNS")) {
+                    trns = start;
+                } else if (type.equals("IDAT")) {
+                    idat.add(start);
+                    idat.add(length);
+                } else if (type.equals("IEND")) {
+                    break;
+                }
+                position = start + length + 4;
+            }
+            if (ihdr < 0 || idat.isEmpty()) {
+                throw new IOException("PNG without image data");
+            }
+            return new Png(data, ihdr, plte, trns, idat);
+        }
+
+        int width() {
+            return readInt(data, ihdr);
+        }
+
+        int height() {
+            return readInt(data, ihdr + 4);
+        }
+
+        /** The length of the chunk whose data starts at {@code start}. */
+        int length(int start) {
+            return readInt(data, start - 8);
+        }
+
+        /** Whether the chunk at {@code start} has the same data as the one at {@code otherStart} of {@code other}, or both are missing. */
+        boolean sameChunk(int start, Png other, int otherStart) {
+            if (start < 0 || otherStart < 0) {
+                return start < 0 && otherStart < 0;
+            }
+            return Arrays.equals(data, start, start + length(start), other.data, otherStart, otherStart + other.length(otherStart));
+        }
+
+        private static int readInt(byte[] b, int off) {
+            return (b[off] & 0xFF) << 24 | (b[off + 1] & 0xFF) << 16 | (b[off + 2] & 0xFF) << 8 | b[off + 3] & 0xFF;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.png;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Multi-core PNG encoder, replaces {@code ImageIO.write(image, "PNG", out)} which deflates on a single core.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class PngEncoder {
+
+    private final int compressionLevel;
+
+    private final PngFilter filter;
+
+    public PngEncoder(int compressionLevel, PngFilter filter) {
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+    }
+
+    /**
+     * Encodes the raster of {@code image}, that is device pixels for HiDPI images.
+     * A {@code TYPE_BYTE_INDEXED} image is written as an indexed PNG with its palette.
+     */
+    public void encode(BufferedImage image, OutputStream out) throws IOException {
+        Raster raster = image.getRaster();
+        try (PngStreamWriter png = image.getType() == BufferedImage.TYPE_BYTE_INDEXED
+                ? newWriter(out, raster.getWidth(), raster.getHeight(), palette((IndexColorModel) image.getColorModel()))
+                : newWriter(out, raster.getWidth(), raster.getHeight(), image.getColorModel().hasAlpha())) {
+            png.writeImage(image);
+        }
+    }
+
+    public PngStreamWriter newWriter(OutputStream out, int width, int height, boolean alpha) throws IOException {
+        return new PngStreamWriter(out, width, height, alpha, compressionLevel, filter, PoolHolder.POOL);
+    }
+
+    public PngStreamWriter newWriter(OutputStream out, int width, int height, int[] palette) throws IOException {
+        return new PngStreamWriter(out, width, height, palette, compressionLevel, PoolHolder.POOL);
+    }
+
+    private static int[] palette(IndexColorModel colorModel) {
+        int[] palette = new int[colorModel.getMapSize()];
+        colorModel.getRGBs(palette);
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] &= 0xFFFFFF;
+        }
+        return palette;
+    }
+
+    /** The encoder threads, also for other CPU bound image work that should not compete with encoding. */
+    public static ForkJoinPool pool() {
+        return PoolHolder.POOL;
+    }
+
+    /**
+     * A dedicated pool rather than the common one, which the IDE uses for its own work.
+     * One core is left free so that painting on the EDT stays responsive while a large image is encoded.
+     */
+    private static final class PoolHolder {
+
+        static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+}
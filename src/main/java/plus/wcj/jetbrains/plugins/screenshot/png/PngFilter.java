@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.png;
+
+/**
+ * PNG scanline filters, see <a href="https://www.w3.org/TR/png/#9Filters">PNG 9. Filtering</a>.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public enum PngFilter {
+
+    NONE(0),
+    SUB(1),
+    UP(2),
+    PAETH(4),
+    /** Picks the filter with the minimum sum of absolute differences per row, the heuristic recommended by the spec. */
+    ADAPTIVE(-1);
+
+    private static final PngFilter[] CANDIDATES = {NONE, SUB, UP, PAETH};
+
+    final byte type;
+
+    PngFilter(int type) {
+        this.type = (byte) type;
+    }
+
+    /**
+     * Filters {@code row} into {@code out[1..]} and stores the filter type in {@code out[0]}.
+     *
+     * @param previous the unfiltered previous scanline, all zero for the first row of the image
+     */
+    void apply(byte[] row, byte[] previous, byte[] out, int bytesPerPixel) {
+        out[0] = type;
+        int length = row.length;
+        switch (this) {
+            case NONE -> System.arraycopy(row, 0, out, 1, length);
+            case SUB -> {
+                for (int i = 0; i < bytesPerPixel; i++) {
+                    out[i + 1] = row[i];
+                }
+                for (int i = bytesPerPixel; i < length; i++) {
+                    out[i + 1] = (byte) (row[i] - row[i - bytesPerPixel]);
+                }
+            }
+            case UP -> {
+                for (int i = 0; i < length; i++) {
+                    out[i + 1] = (byte) (row[i] - previous[i]);
+                }
+            }
+            case PAETH -> {
+                for (int i = 0; i < bytesPerPixel; i++) {
+                    out[i + 1] = (byte) (row[i] - previous[i]);
+                }
+                for (int i = bytesPerPixel; i < length; i++) {
+                    int a = row[i - bytesPerPixel] & 0xFF;
+                    int b = previous[i] & 0xFF;
+                    int c = previous[i - bytesPerPixel] & 0xFF;
+                    out[i + 1] = (byte) (row[i] - paeth(a, b, c));
+                }
+            }
+            default -> throw new IllegalStateException(name() + " has no filter type, use Filterer");
+        }
+    }
+
+    /** Filters rows with {@code strategy}, holding the scratch rows {@link #ADAPTIVE} needs. Not thread safe. */
+    static final class Filterer {
+
+        private final PngFilter strategy;
+
+        private final int bytesPerPixel;
+
+        private final byte[] candidate;
+
+        Filterer(PngFilter strategy, int rowBytes, int bytesPerPixel) {
+            this.strategy = strategy;
+            this.bytesPerPixel = bytesPerPixel;
+            this.candidate = strategy == ADAPTIVE ? new byte[rowBytes + 1] : null;
+        }
+
+        /** Returns the filtered row, either {@code out} or an internal scratch buffer. */
+        byte[] filter(byte[] row, byte[] previous, byte[] out) {
+            if (strategy != ADAPTIVE) {
+                strategy.apply(row, previous, out, bytesPerPixel);
+                return out;
+            }
+            byte[] best = out;
+            byte[] other = candidate;
+            long bestSum = Long.MAX_VALUE;
+            for (PngFilter filter : CANDIDATES) {
+                filter.apply(row, previous, other, bytesPerPixel);
+                long sum = 0;
+                for (int i = 1; i < other.length && sum < bestSum; i++) {
+                    sum += Math.abs(other[i]);
+                }
+                if (sum < bestSum) {
+                    bestSum = sum;
+                    byte[] t = best;
+                    best = other;
+                    other = t;
+                }
+            }
+            return best;
+        }
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+}
@@ -0,0 +1,487 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.png;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Row oriented PNG writer: the image height is declared up front and scanlines are appended band by band,
+ * so only the band being encoded has to be in memory.
+ * <p>
+ * Scanlines are split into segments of about {@link #SEGMENT_BYTES} that are filtered and deflated independently,
+ * in parallel when a pool is given. Like pigz, every segment ends with a sync flush so the raw deflate streams can
+ * simply be concatenated, and the zlib Adler-32 is combined from the per segment checksums.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class PngStreamWriter implements Closeable {
+
+    static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final int COLOR_TYPE_RGB = 2;
+
+    private static final int COLOR_TYPE_PALETTE = 3;
+
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    /** Uncompressed bytes per segment, large enough that restarting the deflate window costs little ratio. */
+    private static final int SEGMENT_BYTES = 1 << 18;
+
+    /** A final, empty, fixed Huffman deflate block. */
+    private static final byte[] FINAL_BLOCK = {0x03, 0x00};
+
+    private static final int ADLER_BASE = 65521;
+
+    private final ChunkOutputStream chunks;
+
+    private final int width, height;
+
+    private final boolean alpha;
+
+    /** {@code 0xRRGGBB} entries of an indexed image, {@code null} for true color. */
+    private final int[] palette;
+
+    private final int bytesPerPixel;
+
+    private final int rowBytes;
+
+    private final int compressionLevel;
+
+    private final PngFilter filter;
+
+    private final ForkJoinPool pool;
+
+    /** Unfiltered last scanline written so far, all zero before the first row. */
+    private final byte[] previous;
+
+    private long adler = 1;
+
+    private int rowsWritten;
+
+    private boolean closed;
+
+    /**
+     * @param compressionLevel {@link Deflater} level, 0-9 or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param pool             pool the segments are encoded on, {@code null} to encode on the calling thread
+     */
+    public PngStreamWriter(OutputStream out, int width, int height, boolean alpha, int compressionLevel, PngFilter filter,
+                           @Nullable ForkJoinPool pool) throws IOException {
+        this(out, width, height, alpha, null, compressionLevel, filter, pool);
+    }
+
+    /**
+     * An indexed PNG, scanlines are appended with {@link #writeIndexedRows}. Rows are not filtered,
+     * as the spec recommends for palette images.
+     *
+     * @param palette {@code 0xRRGGBB} entries, at most 256
+     */
+    public PngStreamWriter(OutputStream out, int width, int height, int[] palette, int compressionLevel,
+                           @Nullable ForkJoinPool pool) throws IOException {
+        this(out, width, height, false, palette, compressionLevel, PngFilter.NONE, pool);
+    }
+
+    private PngStreamWriter(OutputStream out, int width, int height, boolean alpha, @Nullable int[] palette, int compressionLevel,
+                            PngFilter filter, @Nullable ForkJoinPool pool) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid image size: " + width + "x" + height);
+        }
+        if (palette != null && (palette.length == 0 || palette.length > 256)) {
+            throw new IllegalArgumentException("Invalid palette size: " + palette.length);
+        }
+        this.width = width;
+        this.height = height;
+        this.alpha = alpha;
+        this.palette = palette;
+        this.bytesPerPixel = palette != null ? 1 : alpha ? 4 : 3;
+        long rowBytes = (long) width * bytesPerPixel;
+        if (rowBytes + 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Image too wide: " + width);
+        }
+        this.rowBytes = (int) rowBytes;
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+        this.pool = pool;
+        this.previous = new byte[this.rowBytes];
+
+        this.chunks = new ChunkOutputStream(out);
+        writeHeader();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Appends every scanline of {@code image}, the raster width must match the declared width. */
+    public void writeImage(BufferedImage image) throws IOException {
+        Raster raster = image.getRaster();
+        if (raster.getWidth() != width) {
+            throw new IllegalArgumentException("Band width " + raster.getWidth() + " does not match image width " + width);
+        }
+        int rows = raster.getHeight();
+        if (palette != null) {
+            if (!(raster.getDataBuffer() instanceof DataBufferByte dataBuffer)
+                    || !(raster.getSampleModel() instanceof ComponentSampleModel sampleModel)
+                    || sampleModel.getPixelStride() != 1) {
+                throw new IllegalArgumentException("An indexed PNG needs TYPE_BYTE_INDEXED bands");
+            }
+            int offset = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * sampleModel.getScanlineStride()
+                    - raster.getSampleModelTranslateX();
+            writeIndexedRows(dataBuffer.getData(), offset, sampleModel.getScanlineStride(), rows);
+            return;
+        }
+        if ((image.getType() == BufferedImage.TYPE_INT_ARGB || image.getType() == BufferedImage.TYPE_INT_RGB)
+                && raster.getDataBuffer() instanceof DataBufferInt dataBuffer
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel) {
+            int offset = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * sampleModel.getScanlineStride()
+                    - raster.getSampleModelTranslateX();
+            writeRows(dataBuffer.getData(), offset, sampleModel.getScanlineStride(), rows, image.getType() == BufferedImage.TYPE_INT_ARGB);
+            return;
+        }
+        int batch = segmentRows();
+        int[] pixels = new int[width * Math.min(batch, rows)];
+        for (int y = 0; y < rows; y += batch) {
+            int n = Math.min(batch, rows - y);
+            image.getRGB(0, y, width, n, pixels, 0, width);
+            writeRows(pixels, 0, width, n, true);
+        }
+    }
+
+    /**
+     * Appends {@code rows} scanlines of packed {@code 0xAARRGGBB} pixels.
+     *
+     * @param hasAlpha whether the alpha byte of the source pixels is meaningful, otherwise pixels are treated as opaque
+     */
+    public void writeRows(int[] pixels, int offset, int scanlineStride, int rows, boolean hasAlpha) throws IOException {
+        if (palette != null) {
+            throw new IllegalStateException("Use writeIndexedRows for an indexed PNG");
+        }
+        writeScanlines((y, row) -> toBytes(pixels, offset + y * scanlineStride, hasAlpha, row), rows);
+    }
+
+    /** Appends {@code rows} scanlines of palette indices to an indexed PNG. */
+    public void writeIndexedRows(byte[] indices, int offset, int scanlineStride, int rows) throws IOException {
+        if (palette == null) {
+            throw new IllegalStateException("Not an indexed PNG");
+        }
+        writeScanlines((y, row) -> System.arraycopy(indices, offset + y * scanlineStride, row, 0, width), rows);
+    }
+
+    /** Reads unfiltered scanline {@code y} of one write call, must be safe to call from several threads. */
+    @FunctionalInterface
+    private interface Scanlines {
+        void read(int y, byte[] row);
+    }
+
+    private void writeScanlines(Scanlines scanlines, int rows) throws IOException {
+        if (rowsWritten + rows > height) {
+            throw new IOException("Too many rows: " + (rowsWritten + rows) + " > " + height);
+        }
+        if (rows <= 0) {
+            return;
+        }
+        int segmentRows = segmentRows();
+        byte[] carried = previous.clone();
+        if (pool == null || rows <= segmentRows) {
+            for (int from = 0; from < rows; from += segmentRows) {
+                write(encodeSegment(scanlines, from, Math.min(segmentRows, rows - from), carried));
+            }
+        } else {
+            // keep a bounded window of segments in flight and write them back in order
+            int window = Math.max(2, pool.getParallelism() * 2);
+            ArrayDeque<ForkJoinTask<Segment>> inFlight = new ArrayDeque<>(window);
+            try {
+                for (int from = 0; from < rows; from += segmentRows) {
+                    if (inFlight.size() == window) {
+                        write(inFlight.removeFirst().get());
+                    }
+                    int start = from;
+                    int count = Math.min(segmentRows, rows - from);
+                    inFlight.addLast(pool.submit(() -> encodeSegment(scanlines, start, count, carried)));
+                }
+                while (!inFlight.isEmpty()) {
+                    write(inFlight.removeFirst().get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("PNG encoding interrupted");
+            } catch (ExecutionException e) {
+                throw new IOException("PNG encoding failed", e.getCause());
+            } finally {
+                inFlight.forEach(task -> task.cancel(true));
+            }
+        }
+        scanlines.read(rows - 1, previous);
+        rowsWritten += rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (rowsWritten != height) {
+            throw new IOException("Incomplete image: " + rowsWritten + " of " + height + " rows written");
+        }
+        chunks.write(FINAL_BLOCK, 0, FINAL_BLOCK.length);
+        chunks.write((int) (adler >>> 24));
+        chunks.write((int) (adler >>> 16));
+        chunks.write((int) (adler >>> 8));
+        chunks.write((int) adler);
+        chunks.flushChunk();
+        chunks.writeChunk("IEND", new byte[0], 0, 0);
+        chunks.out.flush();
+    }
+
+    private int segmentRows() {
+        return Math.max(1, SEGMENT_BYTES / (rowBytes + 1));
+    }
+
+    private void write(Segment segment) throws IOException {
+        chunks.write(segment.data, 0, segment.length);
+        adler = adler32Combine(adler, segment.adler, segment.rawLength);
+    }
+
+    /**
+     * Filters and deflates rows {@code [from, from + count)} of one {@link #writeScanlines} call.
+     *
+     * @param carried the unfiltered scanline before the first row of the call
+     */
+    private Segment encodeSegment(Scanlines scanlines, int from, int count, byte[] carried) {
+        byte[] prev = new byte[rowBytes];
+        byte[] row = new byte[rowBytes];
+        byte[] out = new byte[rowBytes + 1];
+        if (from == 0) {
+            System.arraycopy(carried, 0, prev, 0, rowBytes);
+        } else {
+            scanlines.read(from - 1, prev);
+        }
+        PngFilter.Filterer filterer = new PngFilter.Filterer(filter, rowBytes, bytesPerPixel);
+        Deflater deflater = new Deflater(compressionLevel, true);
+        Adler32 checksum = new Adler32();
+        SegmentBuffer sink = new SegmentBuffer(Math.max(64, count * (rowBytes + 1) / 4));
+        byte[] buffer = new byte[1 << 16];
+        try {
+            for (int y = from; y < from + count; y++) {
+                scanlines.read(y, row);
+                byte[] filtered = filterer.filter(row, prev, out);
+                checksum.update(filtered, 0, filtered.length);
+                deflater.setInput(filtered, 0, filtered.length);
+                while (!deflater.needsInput()) {
+                    int n = deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+                    sink.write(buffer, 0, n);
+                }
+                byte[] t = prev;
+                prev = row;
+                row = t;
+            }
+            int n;
+            do {
+                n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                sink.write(buffer, 0, n);
+            } while (n == buffer.length);
+        } finally {
+            deflater.end();
+        }
+        return new Segment(sink.buffer(), sink.size(), checksum.getValue(), (long) count * (rowBytes + 1));
+    }
+
+    private void toBytes(int[] pixels, int p, boolean hasAlpha, byte[] row) {
+        int i = 0;
+        for (int x = 0; x < width; x++) {
+            int argb = pixels[p + x];
+            row[i++] = (byte) (argb >>> 16);
+            row[i++] = (byte) (argb >>> 8);
+            row[i++] = (byte) argb;
+            if (alpha) {
+                row[i++] = hasAlpha ? (byte) (argb >>> 24) : (byte) 0xFF;
+            }
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        chunks.out.write(SIGNATURE);
+        byte[] ihdr = new byte[13];
+        putInt(ihdr, 0, width);
+        putInt(ihdr, 4, height);
+        ihdr[8] = 8;
+        ihdr[9] = (byte) (palette != null ? COLOR_TYPE_PALETTE : alpha ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB);
+        ihdr[10] = 0;
+        ihdr[11] = 0;
+        ihdr[12] = 0;
+        chunks.writeChunk("IHDR", ihdr, 0, ihdr.length);
+        if (palette != null) {
+            byte[] plte = new byte[palette.length * 3];
+            for (int i = 0; i < palette.length; i++) {
+                plte[i * 3] = (byte) (palette[i] >>> 16);
+                plte[i * 3 + 1] = (byte) (palette[i] >>> 8);
+                plte[i * 3 + 2] = (byte) palette[i];
+            }
+            chunks.writeChunk("PLTE", plte, 0, plte.length);
+        }
+
+        // zlib header: deflate with a 32K window, FLEVEL only informs decoders about the level used
+        chunks.write(0x78);
+        chunks.write(compressionLevel >= 0 && compressionLevel <= 1 ? 0x01
+                             : compressionLevel >= 2 && compressionLevel <= 5 ? 0x5E
+                             : compressionLevel >= 7 ? 0xDA : 0x9C);
+    }
+
+    static void putInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+
+    /** {@code adler32_combine} from zlib: the checksum of {@code A + B} from the checksums of A and B and the length of B. */
+    static long adler32Combine(long adler1, long adler2, long length2) {
+        long rem = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= ((long) ADLER_BASE << 1)) {
+            sum2 -= ((long) ADLER_BASE << 1);
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    private record Segment(byte[] data, int length, long adler, long rawLength) {
+    }
+
+    /** Unsynchronized {@link ByteArrayOutputStream} that hands out its buffer without copying. */
+    private static final class SegmentBuffer extends ByteArrayOutputStream {
+
+        SegmentBuffer(int size) {
+            super(size);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (count + len > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + len));
+            }
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    /** Collects compressed bytes and emits them as IDAT chunks of at most {@link #CHUNK_SIZE} bytes. */
+    static final class ChunkOutputStream extends OutputStream {
+
+        private static final int CHUNK_SIZE = 1 << 16;
+
+        final DataOutputStream out;
+
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+
+        private final CRC32 crc = new CRC32();
+
+        private int count;
+
+        ChunkOutputStream(OutputStream out) {
+            this.out = new DataOutputStream(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == CHUNK_SIZE) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == CHUNK_SIZE) {
+                    flushChunk();
+                }
+                int n = Math.min(len, CHUNK_SIZE - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /** IDAT chunks are only emitted by {@link #flushChunk()}, the underlying stream is owned by the caller. */
+        @Override
+        public void close() {
+        }
+
+        void flushChunk() throws IOException {
+            if (count > 0) {
+                writeChunk("IDAT", buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        void writeChunk(String type, byte[] data, int off, int len) throws IOException {
+            byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+            crc.reset();
+            crc.update(typeBytes);
+            crc.update(data, off, len);
+            out.writeInt(len);
+            out.write(typeBytes);
+            out.write(data, off, len);
+            out.writeInt((int) crc.getValue());
+        }
+    }
+}
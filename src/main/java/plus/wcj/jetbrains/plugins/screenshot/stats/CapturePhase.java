@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.stats;
+
+/**
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public enum CapturePhase {
+
+    MEASURE("Measure"),
+    PAINT("Paint"),
+    MERGE("Merge"),
+    /** Includes the disk write when the image is encoded straight into the file. */
+    ENCODE("Encode"),
+    WRITE("Write"),
+    CLIPBOARD("Clipboard");
+
+    private final String label;
+
+    CapturePhase(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
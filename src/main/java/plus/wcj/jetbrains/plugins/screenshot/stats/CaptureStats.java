@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.stats;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Rolling timings of the last {@link #WINDOW} samples of every {@link CapturePhase} in this IDE session.
+ * Every phase is also emitted as a {@link PhaseEvent} for Flight Recorder.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class CaptureStats {
+
+    static final int WINDOW = 256;
+
+    private static final Map<CapturePhase, RollingHistogram> HISTOGRAMS = new EnumMap<>(CapturePhase.class);
+
+    static {
+        for (CapturePhase phase : CapturePhase.values()) {
+            HISTOGRAMS.put(phase, new RollingHistogram());
+        }
+    }
+
+    private CaptureStats() {
+    }
+
+    public static PhaseTimer start(@NotNull CapturePhase phase) {
+        return new PhaseTimer(phase);
+    }
+
+    /** Records a phase that was timed in pieces, e.g. painting band by band, without a Flight Recorder event. */
+    public static void record(@NotNull CapturePhase phase, long nanos, long pixels, long bytes) {
+        HISTOGRAMS.get(phase).add(nanos, pixels, bytes);
+    }
+
+    public static Snapshot snapshot(@NotNull CapturePhase phase) {
+        return HISTOGRAMS.get(phase).snapshot(phase);
+    }
+
+    public static void reset() {
+        HISTOGRAMS.values().forEach(RollingHistogram::clear);
+    }
+
+    /**
+     * @param count  samples in the window
+     * @param pixels average image size in device pixels, 0 if the phase has no image
+     * @param bytes  average bytes produced, 0 if the phase writes nothing
+     */
+    public record Snapshot(CapturePhase phase, int count, double p50Millis, double p90Millis, double maxMillis,
+                           long pixels, long bytes) {
+    }
+
+    private static final class RollingHistogram {
+
+        private final long[] nanos = new long[WINDOW];
+
+        private final long[] pixels = new long[WINDOW];
+
+        private final long[] bytes = new long[WINDOW];
+
+        private int next, count;
+
+        synchronized void add(long nanos, long pixels, long bytes) {
+            this.nanos[next] = nanos;
+            this.pixels[next] = pixels;
+            this.bytes[next] = bytes;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+
+        synchronized void clear() {
+            next = 0;
+            count = 0;
+        }
+
+        synchronized Snapshot snapshot(CapturePhase phase) {
+            if (count == 0) {
+                return new Snapshot(phase, 0, 0, 0, 0, 0, 0);
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            long pixelSum = 0, byteSum = 0;
+            for (int i = 0; i < count; i++) {
+                pixelSum += pixels[i];
+                byteSum += bytes[i];
+            }
+            return new Snapshot(phase, count, millis(sorted[(count - 1) / 2]), millis(sorted[(count - 1) * 9 / 10]),
+                                millis(sorted[count - 1]), pixelSum / count, byteSum / count);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot.stats;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+
+/**
+ * Times one phase from {@link CaptureStats#start(CapturePhase)} to {@link #close()}.
+ * Not thread safe, one timer belongs to one thread.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public final class PhaseTimer implements AutoCloseable {
+
+    private final CapturePhase phase;
+
+    private final PhaseEvent event = new PhaseEvent();
+
+    private final long start;
+
+    private int width, height;
+
+    private long bytes;
+
+    private boolean closed;
+
+    PhaseTimer(CapturePhase phase) {
+        this.phase = phase;
+        this.event.begin();
+        this.start = System.nanoTime();
+    }
+
+    /** Records the device pixel size of {@code image}. */
+    public PhaseTimer image(BufferedImage image) {
+        Raster raster = image.getRaster();
+        return size(raster.getWidth(), raster.getHeight());
+    }
+
+    public PhaseTimer size(int width, int height) {
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    public PhaseTimer bytes(long bytes) {
+        this.bytes = bytes;
+        return this;
+    }
+
+    /** Records the phase, only the first call counts. */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long nanos = System.nanoTime() - start;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase.toString();
+            event.width = width;
+            event.height = height;
+            event.bytes = bytes;
+            event.commit();
+        }
+        CaptureStats.record(phase, nanos, (long) width * height, bytes);
+    }
+}
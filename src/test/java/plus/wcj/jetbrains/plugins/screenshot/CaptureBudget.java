@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import org.junit.Assert;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Wall time and allocation budget of one capture of a fixture of {@code lines} lines.
+ * Allocation is counted on the calling thread, which measures and paints everything, and is budgeted
+ * per device pixel of the result on top of {@link #FIXED_BYTES}, so an extra copy of the image fails the budget.
+ * The budgets are loose enough for a shared CI machine, they catch regressions by factors, not by percents.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+record CaptureBudget(int lines, long maxMillis, double maxBytesPerPixel) {
+
+    static final List<CaptureBudget> FILES = List.of(
+            new CaptureBudget(100, 1_000, 12),
+            new CaptureBudget(1_000, 2_000, 12),
+            new CaptureBudget(3_000, 4_000, 12)
+    );
+
+    static final long FIXED_BYTES = 32L << 20;
+
+    private static final int RUNS = 3;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Captures once to warm up, then keeps the fastest time and the smallest allocation of {@link #RUNS} captures.
+     *
+     * @return the last capture
+     */
+    BufferedImage check(String fixture, Supplier<BufferedImage> capture) {
+        BufferedImage image = capture.get();
+        long nanos = Long.MAX_VALUE;
+        long bytes = Long.MAX_VALUE;
+        long thread = Thread.currentThread().getId();
+        for (int run = 0; run < RUNS; run++) {
+            // the last capture is garbage before the next one starts
+            image = null;
+            long allocated = THREADS.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            image = capture.get();
+            nanos = Math.min(nanos, System.nanoTime() - start);
+            bytes = Math.min(bytes, THREADS.getThreadAllocatedBytes(thread) - allocated);
+        }
+        Raster raster = image.getRaster();
+        long pixels = (long) raster.getWidth() * raster.getHeight();
+        long maxBytes = FIXED_BYTES + (long) (pixels * maxBytesPerPixel);
+        long millis = nanos / 1_000_000;
+        Assert.assertTrue(String.format("%s of %d lines took %d ms, the budget is %d ms", fixture, lines, millis, maxMillis),
+                          millis <= maxMillis);
+        Assert.assertTrue(String.format("%s of %d lines allocated %d MB for %d pixels, the budget is %d MB", fixture, lines,
+                                        bytes >> 20, pixels, maxBytes >> 20),
+                          bytes <= maxBytes);
+        return image;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.diff.DiffContentFactory;
+import com.intellij.diff.DiffContext;
+import com.intellij.diff.requests.SimpleDiffRequest;
+import com.intellij.diff.tools.simple.SimpleDiffChange;
+import com.intellij.diff.tools.simple.SimpleDiffModel;
+import com.intellij.diff.tools.simple.SimpleDiffViewer;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import org.jetbrains.annotations.Nullable;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Captures of a two sided diff as the diff capture paints them, the whole files and only the hunks.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public class DiffCaptureTest extends BasePlatformTestCase {
+
+    private static final int[] CHANGED_LINES = {20, 24, 90};
+
+    public void testWholeDiff() throws IOException {
+        String before = TestCode.text(120);
+        GoldenImages.assertMatches("Diff", capture(before, TestCode.change(before, CHANGED_LINES), EditorCaptureTest.state()));
+    }
+
+    public void testHunksOnly() throws IOException {
+        ScreenshotState state = EditorCaptureTest.state();
+        state.diffHunksOnly = true;
+        state.diffContextLines = 2;
+        String before = TestCode.text(120);
+        GoldenImages.assertMatches("DiffHunks", capture(before, TestCode.change(before, CHANGED_LINES), state));
+    }
+
+    /** Only the hunks are painted, so the capture of a few changed lines costs the same in a short and in a long file. */
+    public void testHunksOnlyBudgets() {
+        ScreenshotState state = EditorCaptureTest.state();
+        state.diffHunksOnly = true;
+        state.diffContextLines = 3;
+        int maxHeight = 0;
+        for (CaptureBudget budget : CaptureBudget.FILES) {
+            String before = TestCode.text(budget.lines());
+            SimpleDiffViewer viewer = open(getProject(), before, TestCode.change(before, 10, budget.lines() / 2, budget.lines() - 10));
+            try {
+                BufferedImage image = budget.check("Diff hunks", () -> paint(getProject(), viewer, state));
+                if (maxHeight == 0) {
+                    maxHeight = image.getRaster().getHeight();
+                }
+                assertEquals("three hunks in " + budget.lines() + " lines", maxHeight, image.getRaster().getHeight());
+            } finally {
+                viewer.dispose();
+            }
+        }
+    }
+
+    private BufferedImage capture(String before, String after, ScreenshotState state) {
+        SimpleDiffViewer viewer = open(getProject(), before, after);
+        try {
+            return paint(getProject(), viewer, state);
+        } finally {
+            viewer.dispose();
+        }
+    }
+
+    /** The raster path of the diff capture, without planning and export. */
+    static BufferedImage paint(Project project, SimpleDiffViewer viewer, ScreenshotState state) {
+        assertTrue(ScreenshotUtil.isDiffCaptureSupported(viewer));
+        try (EditorCapture left = new EditorCapture(viewer.getEditor1(), state, project);
+             EditorCapture right = new EditorCapture(viewer.getEditor2(), state, project)) {
+            DiffHunkLayout hunks = ScreenshotAction.diffHunks(viewer, viewer.getEditor1(), left, right, state);
+            assertEquals(state.diffHunksOnly, hunks != null);
+            return ScreenshotAction.paintDiff(viewer, viewer.getEditor1(), left, right, ScreenshotAction.dividerWidth(viewer), hunks, 1, state);
+        }
+    }
+
+    /** A diff viewer that is never shown, with its changes computed and its editors laid out. */
+    static SimpleDiffViewer open(Project project, String before, String after) {
+        DiffContentFactory contents = DiffContentFactory.getInstance();
+        SimpleDiffRequest request = new SimpleDiffRequest("Capture", contents.create(project, before, JavaFileType.INSTANCE),
+                                                          contents.create(project, after, JavaFileType.INSTANCE), "Before", "After");
+        SimpleDiffViewer viewer = new SimpleDiffViewer(new TestDiffContext(project), request);
+        try {
+            // init starts the first diff, the changes arrive on the EDT
+            viewer.init();
+            PlatformTestUtil.waitWithEventsDispatching("The diff was not computed", () -> !changes(viewer).isEmpty(), 30);
+            GoldenImages.pinScheme(viewer.getEditor1());
+            GoldenImages.pinScheme(viewer.getEditor2());
+            OffscreenRenderer.layOut(viewer.getEditor1());
+            OffscreenRenderer.layOut(viewer.getEditor2());
+            return viewer;
+        } catch (RuntimeException | Error e) {
+            viewer.dispose();
+            throw e;
+        }
+    }
+
+    private static List<SimpleDiffChange> changes(SimpleDiffViewer viewer) {
+        SimpleDiffModel myModel = ScreenshotUtil.getField(viewer, "myModel");
+        return myModel.getChanges();
+    }
+
+    private static final class TestDiffContext extends DiffContext {
+
+        private final Project project;
+
+        TestDiffContext(Project project) {
+            this.project = project;
+        }
+
+        @Override
+        public @Nullable Project getProject() {
+            return project;
+        }
+
+        @Override
+        public boolean isWindowFocused() {
+            return false;
+        }
+
+        @Override
+        public boolean isFocusedInWindow() {
+            return false;
+        }
+
+        @Override
+        public void requestFocusInWindow() {
+        }
+    }
+}
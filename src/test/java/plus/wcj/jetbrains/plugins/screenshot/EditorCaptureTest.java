@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.ex.EditorEx;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Captures of fixture editors, compared with their goldens, and of generated files of every budgeted size.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public class EditorCaptureTest extends BasePlatformTestCase {
+
+    @Override
+    protected String getTestDataPath() {
+        return "src/test/testData/capture";
+    }
+
+    /** One device pixel per user space pixel and no band cache, so captures only depend on the fixture. */
+    static ScreenshotState state() {
+        ScreenshotState state = new ScreenshotState();
+        state.fixedOutputScale = true;
+        state.outputScale = 1;
+        state.renderCacheMb = 0;
+        state.loadStateInit();
+        return state;
+    }
+
+    public void testWholeFile() throws IOException {
+        myFixture.configureByFile("Sample.java");
+        GoldenImages.assertMatches("Sample", capture(myFixture.getEditor(), state()));
+    }
+
+    public void testWithoutGutter() throws IOException {
+        myFixture.configureByFile("Sample.java");
+        ScreenshotState state = state();
+        state.includeGutter = false;
+        GoldenImages.assertMatches("SampleWithoutGutter", capture(myFixture.getEditor(), state));
+    }
+
+    public void testSelection() throws IOException {
+        myFixture.configureByFile("Selection.java");
+        Editor editor = myFixture.getEditor();
+        int start = editor.getSelectionModel().getSelectionStart();
+        int end = editor.getSelectionModel().getSelectionEnd();
+        BufferedImage image = capture(editor, state());
+        GoldenImages.assertMatches("Selection", image);
+        // the selection is hidden while painting and restored afterwards
+        assertEquals(start, editor.getSelectionModel().getSelectionStart());
+        assertEquals(end, editor.getSelectionModel().getSelectionEnd());
+    }
+
+    public void testBudgets() {
+        ScreenshotState state = state();
+        for (CaptureBudget budget : CaptureBudget.FILES) {
+            Document document = EditorFactory.getInstance().createDocument(TestCode.text(budget.lines()));
+            BufferedImage image = budget.check("File", () -> {
+                try (EditorCapture capture = OffscreenRenderer.capture(getProject(), document, JavaFileType.INSTANCE, state)) {
+                    return capture.paint();
+                }
+            });
+            assertTrue(image.getRaster().getHeight() >= budget.lines());
+        }
+    }
+
+    private BufferedImage capture(Editor editor, ScreenshotState state) {
+        GoldenImages.pinScheme((EditorEx) editor);
+        OffscreenRenderer.layOut((EditorEx) editor);
+        try (EditorCapture capture = new EditorCapture(editor, state, getProject())) {
+            return capture.paint();
+        }
+    }
+}
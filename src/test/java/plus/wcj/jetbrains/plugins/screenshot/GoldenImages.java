@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.openapi.editor.colors.EditorColorsManager;
+import com.intellij.openapi.editor.colors.EditorColorsScheme;
+import com.intellij.openapi.editor.ex.EditorEx;
+import org.junit.Assert;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compares captures with the golden PNGs in {@code src/test/testData/golden}.
+ * Pixels are compared as packed {@code int} ARGB, a pixel differs if any channel is off by more than the tolerance,
+ * which absorbs antialiasing differences between font rasterizers.
+ * <p>
+ * Run with {@code -Dscreenshot.golden.update=true} to record missing or changed goldens, review them and commit them.
+ * A mismatch leaves the actual image in {@code build/golden} for comparison. A capture without a golden is left there
+ * too and reported, it fails only with {@code -Dscreenshot.golden.strict=true}, so that CI can require every golden. Editors are painted with
+ * {@link #pinScheme pinned} colours and fonts, so a golden does not depend on the settings of the machine recording it.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class GoldenImages {
+
+    private static final Path GOLDEN = Paths.get("src/test/testData/golden");
+
+    private static final Path ACTUAL = Paths.get("build/golden");
+
+    private static final boolean UPDATE = Boolean.getBoolean("screenshot.golden.update");
+
+    private static final boolean STRICT = Boolean.getBoolean("screenshot.golden.strict");
+
+    /** Per channel difference still counted as equal. */
+    static final int CHANNEL_TOLERANCE = 8;
+
+    /** Share of pixels that may differ by more than {@link #CHANNEL_TOLERANCE}. */
+    static final double MAX_MISMATCH = 0.002;
+
+    /** Ships with the platform, unlike the default font of the machine. */
+    static final String FONT = "JetBrains Mono";
+
+    static final int FONT_SIZE = 13;
+
+    static final float LINE_SPACING = 1.2f;
+
+    private GoldenImages() {
+    }
+
+    /** Paints {@code editor} with the default light scheme and {@link #FONT}, leaving the global scheme alone. */
+    static void pinScheme(EditorEx editor) {
+        EditorColorsScheme scheme = editor.createBoundColorSchemeDelegate(
+                EditorColorsManager.getInstance().getScheme(EditorColorsScheme.DEFAULT_SCHEME_NAME));
+        scheme.setEditorFontName(FONT);
+        scheme.setEditorFontSize(FONT_SIZE);
+        scheme.setLineSpacing(LINE_SPACING);
+        editor.setColorsScheme(scheme);
+    }
+
+    static void assertMatches(String name, BufferedImage image) throws IOException {
+        BufferedImage actual = deviceImage(image);
+        Path golden = GOLDEN.resolve(name + ".png");
+        if (UPDATE) {
+            write(actual, golden);
+            return;
+        }
+        if (!Files.exists(golden)) {
+            Path recorded = write(actual, ACTUAL.resolve(name + ".png"));
+            String message = "No golden " + golden + ", the capture is in " + recorded + ", rerun with -Dscreenshot.golden.update=true to record it";
+            if (STRICT) {
+                Assert.fail(message);
+            }
+            System.err.println(message);
+            return;
+        }
+        BufferedImage expected = ImageIO.read(golden.toFile());
+        Mismatch mismatch = compare(expected, actual, CHANNEL_TOLERANCE);
+        if (mismatch.pixels() > MAX_MISMATCH * actual.getWidth() * actual.getHeight()) {
+            Path recorded = write(actual, ACTUAL.resolve(name + ".png"));
+            Assert.fail(name + ": " + mismatch + ", the capture is in " + recorded);
+        }
+    }
+
+    /**
+     * @return the pixels that differ by more than {@code tolerance} in a channel and the largest difference,
+     * every pixel differs if the sizes do
+     */
+    static Mismatch compare(BufferedImage expected, BufferedImage actual, int tolerance) {
+        if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()) {
+            return new Mismatch((long) actual.getWidth() * actual.getHeight(), 255,
+                                String.format("size %dx%d instead of %dx%d", actual.getWidth(), actual.getHeight(), expected.getWidth(), expected.getHeight()));
+        }
+        int[] expectedPixels = argb(expected);
+        int[] actualPixels = argb(actual);
+        long pixels = 0;
+        int max = 0;
+        for (int i = 0; i < actualPixels.length; i++) {
+            int a = expectedPixels[i];
+            int b = actualPixels[i];
+            if (a == b) {
+                continue;
+            }
+            int delta = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                delta = Math.max(delta, Math.abs(((a >>> shift) & 0xFF) - ((b >>> shift) & 0xFF)));
+            }
+            if (delta > tolerance) {
+                pixels++;
+            }
+            max = Math.max(max, delta);
+        }
+        return new Mismatch(pixels, max, "");
+    }
+
+    /** The packed ARGB pixels, straight from the buffer where the image already stores them that way. */
+    static int[] argb(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB && image.getRaster().getDataBuffer() instanceof DataBufferInt buffer
+                && buffer.getData().length == width * height) {
+            return buffer.getData();
+        }
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    /** A plain image of the device pixels, HiDPI images report their size in user space. */
+    private static BufferedImage deviceImage(BufferedImage image) {
+        Raster raster = image.getRaster();
+        if (image.getWidth() == raster.getWidth() && image.getHeight() == raster.getHeight()) {
+            return image;
+        }
+        return new BufferedImage(image.getColorModel(), image.getRaster(), image.isAlphaPremultiplied(), null);
+    }
+
+    private static Path write(BufferedImage image, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        ImageIO.write(image, "png", file.toFile());
+        return file.toAbsolutePath();
+    }
+
+    record Mismatch(long pixels, int maxDelta, String detail) {
+
+        @Override
+        public String toString() {
+            return detail.isEmpty() ? String.format("%d pixels differ, by up to %d", pixels, maxDelta) : detail;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+import com.intellij.diff.tools.simple.SimpleDiffViewer;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.EditorKind;
+import com.intellij.openapi.editor.ex.EditorEx;
+import com.intellij.openapi.editor.highlighter.EditorHighlighterFactory;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import plus.wcj.jetbrains.plugins.screenshot.config.ScreenshotState;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Times the stages of the capture pipeline that need a running platform on synthetic documents of 100 / 5k / 50k lines:
+ * measuring content and gutter, painting band by band, and composing diffs. The JMH benchmarks in {@code src/jmh}
+ * cover the stages that do not, PNG encoding and clipboard preparation.
+ * <p>
+ * Only runs with {@code -Dscreenshot.benchmark=true} and writes {@code build/reports/jmh/screenshot-platform-<label>.json}.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+public class PipelineBenchmarkTest extends BasePlatformTestCase {
+
+    private static final boolean ENABLED = Boolean.getBoolean("screenshot.benchmark");
+
+    private static final String LABEL = System.getProperty("screenshot.benchmark.label", "latest");
+
+    private static final int[] LINES = {100, 5_000, 50_000};
+
+    /** A whole diff of 50k lines does not fit into one image on the test heap. */
+    private static final int MAX_WHOLE_DIFF_LINES = 5_000;
+
+    private static final int WARMUP = 2;
+
+    private static final int RUNS = 5;
+
+    private final List<Result> results = new ArrayList<>();
+
+    @Override
+    protected boolean shouldRunTest() {
+        return ENABLED && super.shouldRunTest();
+    }
+
+    public void testPipeline() throws IOException {
+        ScreenshotState state = EditorCaptureTest.state();
+        for (int lines : LINES) {
+            EditorEx editor = open(TestCode.text(lines));
+            try {
+                measure("sizing", lines, () -> new EditorCapture(editor, state, getProject()).close());
+                try (EditorCapture capture = new EditorCapture(editor, state, getProject())) {
+                    capture.allocateBands();
+                    measure("paintBands", lines, () -> {
+                        for (int i = 0; i < capture.getBandCount(); i++) {
+                            capture.paintBand(i);
+                        }
+                    });
+                }
+            } finally {
+                EditorFactory.getInstance().releaseEditor(editor);
+            }
+
+            String before = TestCode.text(lines);
+            SimpleDiffViewer viewer = DiffCaptureTest.open(getProject(), before, TestCode.change(before, 10, lines / 2, lines - 10));
+            try {
+                if (lines <= MAX_WHOLE_DIFF_LINES) {
+                    measure("diff", lines, () -> DiffCaptureTest.paint(getProject(), viewer, state));
+                }
+                ScreenshotState hunks = EditorCaptureTest.state();
+                hunks.diffHunksOnly = true;
+                hunks.diffContextLines = 3;
+                measure("diffHunks", lines, () -> DiffCaptureTest.paint(getProject(), viewer, hunks));
+            } finally {
+                viewer.dispose();
+            }
+        }
+        write(Paths.get("build/reports/jmh/screenshot-platform-" + LABEL + ".json"));
+    }
+
+    /** A viewer laid out like the one {@link OffscreenRenderer} opens, but not owned by a capture. */
+    private EditorEx open(String text) {
+        Document document = EditorFactory.getInstance().createDocument(text);
+        EditorEx editor = (EditorEx) EditorFactory.getInstance().createViewer(document, getProject(), EditorKind.PREVIEW);
+        editor.setHighlighter(EditorHighlighterFactory.getInstance().createEditorHighlighter(getProject(), JavaFileType.INSTANCE));
+        editor.getSettings().setUseSoftWraps(false);
+        GoldenImages.pinScheme(editor);
+        OffscreenRenderer.layOut(editor);
+        return editor;
+    }
+
+    /** Runs {@code stage} {@link #WARMUP} times, then keeps the fastest and the mean of {@link #RUNS} runs. */
+    private void measure(String stage, int lines, Runnable run) {
+        for (int i = 0; i < WARMUP; i++) {
+            run.run();
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            run.run();
+            long nanos = System.nanoTime() - start;
+            best = Math.min(best, nanos);
+            total += nanos;
+        }
+        results.add(new Result(stage, lines, best / 1e6, total / 1e6 / RUNS));
+    }
+
+    private void write(Path file) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            json.append(String.format(Locale.ROOT, "  {\"stage\": \"%s\", \"lines\": %d, \"bestMillis\": %.3f, \"meanMillis\": %.3f}%s%n",
+                                      result.stage(), result.lines(), result.bestMillis(), result.meanMillis(),
+                                      i < results.size() - 1 ? "," : ""));
+        }
+        json.append("]\n");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+    }
+
+    private record Result(String stage, int lines, double bestMillis, double meanMillis) {
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2025-present The original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package plus.wcj.jetbrains.plugins.screenshot;
+
+/**
+ * Deterministic Java source of any length for the fixtures that are too long to commit.
+ *
+ * @author ChangJin Wei (魏昌进)
+ * @since 2026/10/18
+ */
+final class TestCode {
+
+    private static final String[] LINES = {
+            "public final class Sample%d {",
+            "    private final Map<String, List<Integer>> values = new HashMap<>();",
+            "    /** Returns the sum of all values stored under {@code key}. */",
+            "    public int sum(String key) {",
+            "        int total = 0;",
+            "        for (int value : values.getOrDefault(key, List.of())) {",
+            "            total += value; // %d",
+            "        }",
+            "        return total;",
+            "    }",
+            "",
+            "}",
+    };
+
+    private TestCode() {
+    }
+
+    static String text(int lineCount) {
+        StringBuilder text = new StringBuilder(lineCount * 40);
+        for (int line = 0; line < lineCount; line++) {
+            text.append(String.format(LINES[line % LINES.length], line)).append('\n');
+        }
+        return text.toString();
+    }
+
+    /** {@code text} with the given lines replaced, as a change in a diff. */
+    static String change(String text, int... lines) {
+        String[] split = text.split("\n", -1);
+        for (int line : lines) {
+            split[line] = "        total -= " + line + "; // changed";
+        }
+        return String.join("\n", split);
+    }
+}
@@ -0,0 +1,30 @@
+package sample;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A small class with the usual highlighting: keywords, strings, numbers, comments and doc comments.
+ */
+public class Sample {
+
+    private static final String GREETING = "Hello";
+
+    private final List<String> names = new ArrayList<>();
+
+    public void add(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name must not be blank");
+        }
+        names.add(name);
+    }
+
+    // greets everyone who was added, 42 at most
+    public List<String> greet() {
+        List<String> greetings = new ArrayList<>();
+        for (int i = 0; i < Math.min(names.size(), 42); i++) {
+            greetings.add(GREETING + ", " + names.get(i) + "!");
+        }
+        return greetings;
+    }
+}
@@ -0,0 +1,12 @@
+package sample;
+
+public class Selection {
+
+    public int sum(int[] values) {
+<selection>        int total = 0;
+        for (int value : values) {
+            total += value;
+        }
+</selection>        return total;
+    }
+}